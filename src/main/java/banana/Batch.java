@@ -0,0 +1,123 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The Batch class runs Banana without a window
+ * on a script of commands, one per line, read
+ * from a file or from standard input.
+ *
+ * Responses are written to standard output in
+ * the same form the server sends them, each
+ * followed by an empty line. Blank lines are
+ * skipped, and "bye" ends the script early.
+ *
+ * The list is not saved after every command.
+ * It is saved every banana.batch.checkpoint
+ * commands (100000 unless set, 0 for never)
+ * and once more at the end, so a long script
+ * costs a few writes instead of one per line.
+ *
+ * On machines with more than one processor the
+ * script runs through a Pipeline instead, which
+ * parses, applies and writes out commands on
+ * separate threads and reports how busy each
+ * stage was. banana.batch.pipeline set to true
+ * or false overrides this.
+ */
+class Batch {
+
+    private static final int CHECKPOINT = Integer.getInteger("banana.batch.checkpoint", 100_000);
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final boolean IS_PIPELINED = Boolean.parseBoolean(System.getProperty(
+            "banana.batch.pipeline", String.valueOf(Runtime.getRuntime().availableProcessors() > 1)));
+
+    private final Duke duke;
+    private final int checkpoint;
+
+    /**
+     * Constructor for Batch.
+     *
+     * @param duke       the Duke to run the commands on.
+     * @param checkpoint the commands between saves, or 0
+     *                   to save only at the end.
+     */
+    Batch(Duke duke, int checkpoint) {
+        this.duke = duke;
+        this.checkpoint = checkpoint;
+        duke.deferCommits();
+    }
+
+    /**
+     * Runs every command in a script, then
+     * hands the changes to the background writer.
+     *
+     * @param in  the script.
+     * @param out where the responses go.
+     * @return the number of commands run.
+     * @throws IOException if the script cannot be read,
+     *                     or the tasks cannot be saved.
+     */
+    long run(BufferedReader in, Writer out) throws IOException {
+        Session session = new Session();
+        long count = 0;
+        String input;
+        while ((input = in.readLine()) != null) {
+            input = input.trim();
+            if (input.isEmpty()) {
+                continue;
+            } else if (input.equals("bye")) {
+                out.write(" Bye. Hope to see you again soon!\n\n");
+                break;
+            }
+            out.write(duke.getResponse(session, input));
+            out.write("\n\n");
+            count++;
+            if (checkpoint > 0 && count % checkpoint == 0) {
+                duke.commit();
+            }
+        }
+        out.flush();
+        duke.commit();
+        return count;
+    }
+
+    /**
+     * Runs a script on the tasks in info/Tasks.txt
+     * and saves them when it is done.
+     *
+     * @param source the script's file, or "-" for standard input.
+     * @throws IOException if the script cannot be read,
+     *                     or the tasks cannot be saved.
+     */
+    static void run(String source) throws IOException {
+        Duke duke = new Duke("info/Tasks.txt");
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try (BufferedReader in = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                        BUFFER_SIZE)
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            if (IS_PIPELINED) {
+                Pipeline pipeline = new Pipeline(duke, CHECKPOINT);
+                pipeline.run(in, out);
+                System.err.println(pipeline.describe());
+            } else {
+                new Batch(duke, CHECKPOINT).run(in, out);
+            }
+        } finally {
+            out.flush();
+            duke.close();
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package banana;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BinaryTaskFile class keeps the tasks
+ * in a compact binary file which is read
+ * back through a memory-mapped buffer.
+ *
+ * The file starts with a magic number and
+ * the task count, followed by one record per
+ * task: the record length, a type byte, a done
+ * byte, the epoch day of the date (or
+ * Task.NO_DATE), the description length, the
+ * UTF-8 description and finally the UTF-8 time
+ * or free text.
+ */
+class BinaryTaskFile implements TaskFile {
+
+    static final int MAGIC = 0x424E4E41;
+    private static final int HEADER_SIZE = 8;
+    private static final int FIXED_SIZE = 10;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private File file;
+    private File textFile;
+    private boolean isDirty;
+
+    /**
+     * Constructor for BinaryTaskFile.
+     *
+     * @param file     the binary file.
+     * @param textFile the text file to convert from if
+     *                 the binary file does not exist yet.
+     */
+    public BinaryTaskFile(File file, File textFile) {
+        this.file = file;
+        this.textFile = textFile;
+    }
+
+    /**
+     * Loads the binary file, first converting
+     * the text file if there is no binary
+     * file yet.
+     *
+     * @param report where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file is unreadable or corrupt.
+     */
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            TaskList tasks = textFile.exists()
+                    ? Storage.readText(textFile, report)
+                    : new TaskList(new ArrayList<>());
+            write(file.toPath(), tasks, false);
+            return tasks;
+        }
+        TaskList tasks = read(file.toPath(), report);
+        isDirty = !report.isClean();
+        return tasks;
+    }
+
+    @Override
+    public Write capture(TaskList tasks) {
+        if (!isDirty) {
+            return null;
+        }
+        isDirty = false;
+        return new Snapshot(tasks.copy());
+    }
+
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        Snapshot last = (Snapshot) writes.get(writes.size() - 1);
+        write(file.toPath(), last.getTasks(), isForced);
+    }
+
+    /**
+     * Reads a binary task file. A record that
+     * cannot be read goes into quarantine and
+     * the rest still load; if its length is
+     * damaged too, so are the records after it,
+     * as they can no longer be found.
+     *
+     * @param path   the file.
+     * @param report where to record damaged records.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file is unreadable or not a task file.
+     */
+    static TaskList read(Path path, LoadReport report) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be mapped");
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || buf.getInt() != MAGIC) {
+                throw new IOException(path + " is not a task file");
+            }
+            int count = buf.getInt();
+            ArrayList<Task> tasks = new ArrayList<>(Math.max(0, Math.min(count, (int) size)));
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int start = buf.position();
+                int length = buf.remaining() < 4 ? -1 : buf.getInt();
+                if (length < FIXED_SIZE || length > buf.remaining()) {
+                    report.quarantine(path.toFile(), "record " + (i + 1), count - i,
+                            bytesOf(buf, start, buf.limit()));
+                    break;
+                }
+                int end = buf.position() + length;
+                try {
+                    char type = (char) buf.get();
+                    boolean isDone = buf.get() != 0;
+                    int epochDay = buf.getInt();
+                    int descLength = buf.getInt();
+                    int detailLength = end - buf.position() - descLength;
+                    if (scratch.length < Math.max(descLength, detailLength)) {
+                        scratch = new byte[Math.max(descLength, detailLength)];
+                    }
+                    buf.get(scratch, 0, descLength);
+                    String description = new String(scratch, 0, descLength,
+                            StandardCharsets.UTF_8);
+                    buf.get(scratch, 0, detailLength);
+                    String detail = new String(scratch, 0, detailLength,
+                            StandardCharsets.UTF_8);
+                    LocalDate date = epochDay == Task.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+                    tasks.add(Storage.build(type, isDone, description, date, detail));
+                } catch (RuntimeException e) {
+                    report.quarantine(path.toFile(), "record " + (i + 1), 1,
+                            bytesOf(buf, start, end));
+                }
+                buf.position(end);
+            }
+            return new TaskList(tasks);
+        }
+    }
+
+    private static byte[] bytesOf(ByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buf.duplicate().position(start).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes tasks to a binary file, going through
+     * a temporary file so a crash never leaves a
+     * half-written file behind.
+     *
+     * @param path     the file to overwrite.
+     * @param tasks    the list of tasks.
+     * @param isForced whether to fsync before replacing the file.
+     * @throws IOException if not able to write to the file.
+     */
+    static void write(Path path, TaskList tasks, boolean isForced) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buf.putInt(MAGIC).putInt(tasks.getSize());
+            for (int i = 0; i < tasks.getSize(); i++) {
+                Task t = tasks.getTask(i);
+                byte[] description = t.getDescription().getBytes(StandardCharsets.UTF_8);
+                byte[] detail = t.getTime().getBytes(StandardCharsets.UTF_8);
+                int length = FIXED_SIZE + description.length + detail.length;
+                if (buf.remaining() < length + 4) {
+                    drain(channel, buf);
+                }
+                // A record too big for the buffer goes out on its own.
+                ByteBuffer out = buf.capacity() < length + 4
+                        ? ByteBuffer.allocate(length + 4) : buf;
+                out.putInt(length)
+                        .put((byte) Storage.typeOf(t))
+                        .put((byte) (t.getIsDone().equals("[X]") ? 1 : 0))
+                        .putInt(t.getEpochDay())
+                        .putInt(description.length)
+                        .put(description)
+                        .put(detail);
+                if (out != buf) {
+                    drain(channel, out);
+                }
+            }
+            drain(channel, buf);
+            if (isForced) {
+                channel.force(true);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        isDirty = true;
+    }
+
+}
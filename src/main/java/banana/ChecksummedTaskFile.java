@@ -0,0 +1,76 @@
+package banana;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.List;
+
+/**
+ * The ChecksummedTaskFile class keeps the tasks
+ * in Tasks.crc, in text format with each line
+ * starting with the CRC32C of the rest of it.
+ * A line damaged by a crash or a bad disk fails
+ * its check and is quarantined, while the lines
+ * around it still load.
+ */
+class ChecksummedTaskFile implements TaskFile {
+
+    private File file;
+    private File textFile;
+    private boolean isDirty;
+
+    /**
+     * Constructor for ChecksummedTaskFile.
+     *
+     * @param file     the checksummed file.
+     * @param textFile the text file to convert from if
+     *                 the checksummed file does not exist yet.
+     */
+    public ChecksummedTaskFile(File file, File textFile) {
+        this.file = file;
+        this.textFile = textFile;
+    }
+
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        if (!file.exists()) {
+            TaskList tasks = Storage.readText(textFile, report);
+            Storage.writeText(file.toPath(), tasks, false, true);
+            return tasks;
+        }
+        TaskList tasks = ParallelTextLoader.load(file, true, report);
+        isDirty = !report.isClean();
+        return tasks;
+    }
+
+    @Override
+    public Write capture(TaskList tasks) {
+        if (!isDirty) {
+            return null;
+        }
+        isDirty = false;
+        return new Snapshot(tasks.copy());
+    }
+
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        Snapshot last = (Snapshot) writes.get(writes.size() - 1);
+        Storage.writeText(file.toPath(), last.getTasks(), isForced, true);
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        isDirty = true;
+    }
+
+}
@@ -0,0 +1,312 @@
+package banana;
+
+import java.nio.charset.StandardCharsets;
+
+import java.time.LocalDate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ColumnarTasks class keeps tasks as columns
+ * of plain arrays instead of one object per task:
+ * a type byte, a done bit, an epoch day, and the
+ * description and time text as UTF-8 in one shared
+ * byte array. A task takes about 17 bytes plus its
+ * text, so very long lists need far less memory and
+ * give the garbage collector almost nothing to scan.
+ *
+ * Tasks are built as objects only when read, so a
+ * task read twice gives two equal but different
+ * objects. Inserting or removing away from the end
+ * moves the later entries of each column, which is
+ * a fast memory copy but still O(n).
+ */
+class ColumnarTasks implements TaskStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+    private byte[] types;
+    private long[] doneBits;
+    private int[] epochDays;
+    private int[] textStarts;
+    private int[] descriptionLengths;
+    private int[] detailLengths;
+    private byte[] text;
+    private int textSize;
+    private int unusedText;
+
+    /**
+     * Constructor for ColumnarTasks.
+     *
+     * @param tasks the tasks to start with, in order.
+     */
+    ColumnarTasks(List<Task> tasks) {
+        int capacity = Math.max(INITIAL_CAPACITY, tasks.size());
+        this.types = new byte[capacity];
+        this.doneBits = new long[(capacity >>> 6) + 1];
+        this.epochDays = new int[capacity];
+        this.textStarts = new int[capacity];
+        this.descriptionLengths = new int[capacity];
+        this.detailLengths = new int[capacity];
+        this.text = new byte[Math.max(1024, tasks.size() * 24)];
+        for (Task t : tasks) {
+            insertAt(size, t);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        int start = textStarts[index];
+        String description = new String(text, start, descriptionLengths[index],
+                StandardCharsets.UTF_8);
+        String detail = new String(text, start + descriptionLengths[index],
+                detailLengths[index], StandardCharsets.UTF_8);
+        LocalDate date = epochDays[index] == Task.NO_DATE
+                ? null
+                : LocalDate.ofEpochDay(epochDays[index]);
+        return Storage.build((char) types[index], isDone(index), description, date, detail);
+    }
+
+    /**
+     * Finds the position of a task with the same
+     * contents, searching from the end. Tasks read
+     * from here are new objects each time, so they
+     * can only be matched by what they hold.
+     *
+     * @param t the task.
+     * @return its position, or -1 if no task matches.
+     */
+    @Override
+    public int indexOf(Task t) {
+        byte type = (byte) Storage.typeOf(t);
+        int epochDay = t.getEpochDay();
+        boolean isDone = t.getIsDone().equals("[X]");
+        byte[] description = t.getDescription().getBytes(StandardCharsets.UTF_8);
+        byte[] detail = t.getTime().getBytes(StandardCharsets.UTF_8);
+        for (int i = size - 1; i >= 0; i--) {
+            int start = textStarts[i];
+            int detailStart = start + descriptionLengths[i];
+            if (types[i] == type && epochDays[i] == epochDay && isDone(i) == isDone
+                    && Arrays.equals(text, start, detailStart, description, 0, description.length)
+                    && Arrays.equals(text, detailStart, detailStart + detailLengths[i],
+                            detail, 0, detail.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void insertAt(int index, Task t) {
+        checkIndex(index, size + 1);
+        byte[] description = t.getDescription().getBytes(StandardCharsets.UTF_8);
+        byte[] detail = t.getTime().getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(size + 1);
+        int start = appendText(description, detail);
+        int moved = size - index;
+        System.arraycopy(types, index, types, index + 1, moved);
+        System.arraycopy(epochDays, index, epochDays, index + 1, moved);
+        System.arraycopy(textStarts, index, textStarts, index + 1, moved);
+        System.arraycopy(descriptionLengths, index, descriptionLengths, index + 1, moved);
+        System.arraycopy(detailLengths, index, detailLengths, index + 1, moved);
+        insertBit(index);
+        size++;
+        types[index] = (byte) Storage.typeOf(t);
+        epochDays[index] = t.getEpochDay();
+        textStarts[index] = start;
+        descriptionLengths[index] = description.length;
+        detailLengths[index] = detail.length;
+        setDone(index, t.getIsDone().equals("[X]"));
+    }
+
+    @Override
+    public Task removeAt(int index) {
+        Task t = get(index);
+        unusedText += descriptionLengths[index] + detailLengths[index];
+        int moved = size - index - 1;
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(epochDays, index + 1, epochDays, index, moved);
+        System.arraycopy(textStarts, index + 1, textStarts, index, moved);
+        System.arraycopy(descriptionLengths, index + 1, descriptionLengths, index, moved);
+        System.arraycopy(detailLengths, index + 1, detailLengths, index, moved);
+        removeBit(index);
+        size--;
+        if (unusedText > textSize / 2 && textSize > 1 << 20) {
+            compactText();
+        }
+        return t;
+    }
+
+    /**
+     * Removes the tasks at several positions,
+     * moving each remaining entry at most once.
+     *
+     * @param indices the positions, in increasing order.
+     * @return the removed tasks, in the same order.
+     */
+    @Override
+    public Task[] removeAll(int[] indices) {
+        Task[] removed = new Task[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            removed[i] = get(indices[i]);
+            unusedText += descriptionLengths[indices[i]] + detailLengths[indices[i]];
+        }
+        int next = 0;
+        int position = indices.length == 0 ? size : indices[0];
+        for (int i = position; i < size; i++) {
+            if (next < indices.length && indices[next] == i) {
+                next++;
+                continue;
+            }
+            types[position] = types[i];
+            epochDays[position] = epochDays[i];
+            textStarts[position] = textStarts[i];
+            descriptionLengths[position] = descriptionLengths[i];
+            detailLengths[position] = detailLengths[i];
+            setDone(position, isDone(i));
+            position++;
+        }
+        size = position;
+        if (unusedText > textSize / 2 && textSize > 1 << 20) {
+            compactText();
+        }
+        return removed;
+    }
+
+    @Override
+    public void setDone(int index, boolean isDone) {
+        checkIndex(index, size);
+        if (isDone) {
+            doneBits[index >>> 6] |= 1L << index;
+        } else {
+            doneBits[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    @Override
+    public TaskStore copy(int start, int end) {
+        ColumnarTasks copy = new ColumnarTasks(List.of());
+        copy.ensureCapacity(end - start);
+        for (int i = start; i < end; i++) {
+            int length = descriptionLengths[i] + detailLengths[i];
+            if (copy.textSize + length > copy.text.length) {
+                copy.text = Arrays.copyOf(copy.text,
+                        Math.max(copy.text.length * 2, copy.textSize + length));
+            }
+            System.arraycopy(text, textStarts[i], copy.text, copy.textSize, length);
+            copy.types[i - start] = types[i];
+            copy.epochDays[i - start] = epochDays[i];
+            copy.textStarts[i - start] = copy.textSize;
+            copy.descriptionLengths[i - start] = descriptionLengths[i];
+            copy.detailLengths[i - start] = detailLengths[i];
+            if (isDone(i)) {
+                copy.doneBits[(i - start) >>> 6] |= 1L << (i - start);
+            }
+            copy.textSize += length;
+        }
+        copy.size = end - start;
+        return copy;
+    }
+
+    @Override
+    public boolean isIdentityKept() {
+        return false;
+    }
+
+    private boolean isDone(int index) {
+        return (doneBits[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Moves the done bits from index up
+     * by one, leaving index clear.
+     */
+    private void insertBit(int index) {
+        int word = index >>> 6;
+        for (int i = size >>> 6; i > word; i--) {
+            doneBits[i] = doneBits[i] << 1 | doneBits[i - 1] >>> 63;
+        }
+        long below = (1L << index) - 1;
+        long bits = doneBits[word];
+        doneBits[word] = bits & below | (bits & ~below) << 1;
+    }
+
+    /**
+     * Moves the done bits after index
+     * down by one, dropping index.
+     */
+    private void removeBit(int index) {
+        int word = index >>> 6;
+        long below = (1L << index) - 1;
+        long bits = doneBits[word];
+        doneBits[word] = bits & below | bits >>> 1 & ~below;
+        for (int i = word + 1; i <= (size - 1) >>> 6; i++) {
+            doneBits[i - 1] |= (doneBits[i] & 1L) << 63;
+            doneBits[i] >>>= 1;
+        }
+    }
+
+    private int appendText(byte[] description, byte[] detail) {
+        int length = description.length + detail.length;
+        if (textSize + length > text.length) {
+            if (unusedText > text.length / 2) {
+                compactText();
+            }
+            if (textSize + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textSize + length));
+            }
+        }
+        int start = textSize;
+        System.arraycopy(description, 0, text, start, description.length);
+        System.arraycopy(detail, 0, text, start + description.length, detail.length);
+        textSize += length;
+        return start;
+    }
+
+    /**
+     * Drops the text of removed tasks
+     * by copying the rest in order.
+     */
+    private void compactText() {
+        byte[] compacted = new byte[Math.max(1024, (textSize - unusedText) * 3 / 2)];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            int length = descriptionLengths[i] + detailLengths[i];
+            System.arraycopy(text, textStarts[i], compacted, position, length);
+            textStarts[i] = position;
+            position += length;
+        }
+        text = compacted;
+        textSize = position;
+        unusedText = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        textStarts = Arrays.copyOf(textStarts, newCapacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, newCapacity);
+        detailLengths = Arrays.copyOf(detailLengths, newCapacity);
+        doneBits = Arrays.copyOf(doneBits, (newCapacity >>> 6) + 1);
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length "
+                    + bound);
+        }
+    }
+
+}
@@ -0,0 +1,393 @@
+package banana;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The CompressedTaskFile class keeps the tasks in
+ * Tasks.dz as deflated blocks of text-format lines,
+ * BLOCK_TASKS tasks per block, followed by an index
+ * giving each block's offset, sizes and task count.
+ *
+ * Blocks are compressed and inflated in parallel,
+ * and the index lets a single task be read by
+ * inflating only the block that holds it.
+ */
+class CompressedTaskFile implements TaskFile {
+
+    static final int BLOCK_TASKS = 4096;
+    private static final int MAGIC = 0x424E445A;
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 20;
+
+    private File file;
+    private File textFile;
+    private boolean isDirty;
+
+    /**
+     * Constructor for CompressedTaskFile.
+     *
+     * @param file     the compressed file.
+     * @param textFile the text file to convert from if
+     *                 the compressed file does not exist yet.
+     */
+    public CompressedTaskFile(File file, File textFile) {
+        this.file = file;
+        this.textFile = textFile;
+    }
+
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            TaskList tasks = textFile.exists()
+                    ? Storage.readText(textFile, report)
+                    : new TaskList(new ArrayList<>());
+            write(file.toPath(), tasks, false);
+            return tasks;
+        }
+        TaskList tasks = read(file.toPath(), report);
+        isDirty = !report.isClean();
+        return tasks;
+    }
+
+    @Override
+    public Write capture(TaskList tasks) {
+        if (!isDirty) {
+            return null;
+        }
+        isDirty = false;
+        return new Snapshot(tasks.copy());
+    }
+
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        Snapshot last = (Snapshot) writes.get(writes.size() - 1);
+        write(file.toPath(), last.getTasks(), isForced);
+    }
+
+    /**
+     * Reads every block of a compressed task file,
+     * inflating the blocks in parallel. A block
+     * that cannot be inflated, or a line in one
+     * that cannot be read, goes into quarantine
+     * and the rest still load.
+     *
+     * @param path   the file.
+     * @param report where to record damaged blocks and lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file or its index is unreadable.
+     */
+    static TaskList read(Path path, LoadReport report) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Block[] blocks = readIndex(channel, path);
+            List<ForkJoinTask<Part>> parts = new ArrayList<>();
+            int total = 0;
+            for (Block block : blocks) {
+                parts.add(ForkJoinPool.commonPool().submit(() -> readPart(channel, block)));
+                total += block.taskCount;
+            }
+            ArrayList<Task> tasks = new ArrayList<>(total);
+            long firstLine = 1;
+            for (int i = 0; i < parts.size(); i++) {
+                Part part = parts.get(i).join();
+                if (part.tasks == null) {
+                    report.quarantine(path.toFile(), "block " + (i + 1), blocks[i].taskCount,
+                            part.compressed);
+                } else {
+                    tasks.addAll(part.tasks);
+                    List<Long> lineNumbers = new ArrayList<>();
+                    for (int lineNumber : part.badLineNumbers) {
+                        lineNumbers.add(firstLine + lineNumber);
+                    }
+                    report.quarantine(path.toFile(), lineNumbers, part.badLines);
+                }
+                firstLine += blocks[i].taskCount;
+            }
+            return new TaskList(tasks);
+        } catch (RuntimeException e) {
+            throw new IOException(path + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Reads one task, inflating only the
+     * block that holds it.
+     *
+     * @param path  the file.
+     * @param index the task's position in the list.
+     * @return the task.
+     * @throws IOException if the file is unreadable or corrupt.
+     */
+    static Task readTask(Path path, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int first = 0;
+            for (Block block : readIndex(channel, path)) {
+                if (index < first + block.taskCount) {
+                    String text = new String(inflate(readBlock(channel, block), block.rawLength),
+                            StandardCharsets.UTF_8);
+                    int lineStart = 0;
+                    for (int i = 0; i < index - first; i++) {
+                        lineStart = text.indexOf('\n', lineStart) + 1;
+                    }
+                    return Storage.decode(text.substring(lineStart, text.indexOf('\n', lineStart)));
+                }
+                first += block.taskCount;
+            }
+            throw new IOException("there is no task " + (index + 1) + " in " + path);
+        } catch (RuntimeException e) {
+            throw new IOException(path + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Writes tasks as compressed blocks, compressing
+     * the blocks in parallel and going through a
+     * temporary file.
+     *
+     * @param path     the file to overwrite.
+     * @param tasks    the list of tasks.
+     * @param isForced whether to fsync before replacing the file.
+     * @throws IOException if not able to write to the file.
+     */
+    static void write(Path path, TaskList tasks, boolean isForced) throws IOException {
+        List<ForkJoinTask<Deflated>> parts = new ArrayList<>();
+        for (int start = 0; start < tasks.getSize(); start += BLOCK_TASKS) {
+            int from = start;
+            int to = Math.min(tasks.getSize(), start + BLOCK_TASKS);
+            parts.add(ForkJoinPool.commonPool().submit(() -> deflate(tasks, from, to)));
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = HEADER_SIZE;
+            ByteBuffer index = ByteBuffer.allocate(parts.size() * INDEX_ENTRY_SIZE);
+            for (int i = 0; i < parts.size(); i++) {
+                Deflated block = parts.get(i).join();
+                int taskCount = Math.min(BLOCK_TASKS, tasks.getSize() - i * BLOCK_TASKS);
+                index.putLong(offset).putInt(block.bytes.length).putInt(block.rawLength)
+                        .putInt(taskCount);
+                writeFully(channel, ByteBuffer.wrap(block.bytes), offset);
+                offset += block.bytes.length;
+            }
+            index.flip();
+            writeFully(channel, index, offset);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(parts.size()).putLong(offset).flip();
+            writeFully(channel, header, 0);
+            if (isForced) {
+                channel.force(true);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf, position + buf.position());
+        }
+    }
+
+    /**
+     * Encodes and deflates the tasks from index
+     * from up to index to.
+     *
+     * @return the compressed block.
+     */
+    private static Deflated deflate(TaskList tasks, int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            Storage.encode(tasks.getTask(i), sb);
+            sb.append('\n');
+        }
+        byte[] raw = sb.toString().getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buf = new byte[1 << 16];
+        while (!deflater.finished()) {
+            out.write(buf, 0, deflater.deflate(buf));
+        }
+        deflater.end();
+        return new Deflated(out.toByteArray(), raw.length);
+    }
+
+    private static Block[] readIndex(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException(path + " is not a compressed task file");
+        }
+        int blockCount = header.getInt();
+        long indexOffset = header.getLong();
+        ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_SIZE);
+        while (index.hasRemaining()) {
+            if (channel.read(index, indexOffset + index.position()) < 0) {
+                throw new IOException(path + " is truncated");
+            }
+        }
+        index.flip();
+        Block[] blocks = new Block[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i] = new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt());
+        }
+        return blocks;
+    }
+
+    /**
+     * Reads and decodes one block, keeping its
+     * bytes instead if it cannot be inflated.
+     */
+    private static Part readPart(FileChannel channel, Block block) throws IOException {
+        byte[] compressed = readBlock(channel, block);
+        try {
+            return decode(inflate(compressed, block.rawLength));
+        } catch (IOException | RuntimeException e) {
+            return new Part(compressed);
+        }
+    }
+
+    /**
+     * Reads a block's compressed bytes, or as
+     * many of them as the file still holds.
+     */
+    private static byte[] readBlock(FileChannel channel, Block block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+        while (compressed.hasRemaining()
+                && channel.read(compressed, block.offset + compressed.position()) >= 0) {
+            // Reads until the block is whole or the file ends.
+        }
+        return Arrays.copyOf(compressed.array(), compressed.position());
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] raw = new byte[rawLength];
+        try {
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int count = inflater.inflate(raw, length, raw.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("a block is corrupt");
+                }
+                length += count;
+            }
+            if (length != raw.length) {
+                throw new IOException("a block is corrupt");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("a block is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private static Part decode(byte[] raw) {
+        Part part = new Part(null);
+        part.tasks = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] == '\n') {
+                String line = new String(raw, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                Task t = Storage.tryDecode(line);
+                if (t == null) {
+                    part.badLineNumbers.add(part.tasks.size() + part.badLines.size());
+                    part.badLines.add(line);
+                } else {
+                    part.tasks.add(t);
+                }
+                lineStart = i + 1;
+            }
+        }
+        return part;
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        isDirty = true;
+    }
+
+    /**
+     * Where one block lives in the file.
+     */
+    private static class Block {
+
+        private long offset;
+        private int compressedLength;
+        private int rawLength;
+        private int taskCount;
+
+        Block(long offset, int compressedLength, int rawLength, int taskCount) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.taskCount = taskCount;
+        }
+    }
+
+    /**
+     * One block as read: its tasks and damaged
+     * lines, or, if it could not be inflated,
+     * its compressed bytes.
+     */
+    private static class Part {
+
+        private List<Task> tasks;
+        private final List<Integer> badLineNumbers = new ArrayList<>();
+        private final List<String> badLines = new ArrayList<>();
+        private final byte[] compressed;
+
+        Part(byte[] compressed) {
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * A block as written: its compressed
+     * bytes and how long it was before.
+     */
+    private static class Deflated {
+
+        private final byte[] bytes;
+        private final int rawLength;
+
+        Deflated(byte[] bytes, int rawLength) {
+            this.bytes = bytes;
+            this.rawLength = rawLength;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package banana;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The CompressionBenchmark class converts a text
+ * task file to the compressed format and prints
+ * how much smaller it gets and how fast each
+ * format loads.
+ */
+class CompressionBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    /**
+     * Runs the benchmark. The compressed copy is
+     * written next to the text file.
+     *
+     * @param args the path of a text task file.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path text = Path.of(args[0]);
+        Path compressed = text.resolveSibling(text.getFileName() + ".dz");
+        TaskList tasks = Storage.readText(text.toFile());
+        CompressedTaskFile.write(compressed, tasks, false);
+        long textSize = Files.size(text);
+        long compressedSize = Files.size(compressed);
+        System.out.printf("%d tasks: %d bytes as text, %d compressed (ratio %.1f:1)%n",
+                tasks.getSize(), textSize, compressedSize, (double) textSize / compressedSize);
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            Storage.readText(text.toFile());
+            long textNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            CompressedTaskFile.read(compressed, new LoadReport());
+            long compressedNanos = System.nanoTime() - start;
+            System.out.printf("load: text %.0f tasks/s, compressed %.0f tasks/s%n",
+                    tasks.getSize() * 1e9 / textNanos, tasks.getSize() * 1e9 / compressedNanos);
+        }
+    }
+
+}
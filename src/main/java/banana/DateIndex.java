@@ -0,0 +1,120 @@
+package banana;
+
+import java.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The DateIndex class keeps the deadlines and
+ * events sorted by date, keyed by epoch day, and
+ * is kept up to date as tasks come and go. Date
+ * queries then only read the days asked about.
+ *
+ * Deadlines and events whose date is free text,
+ * such as "monday 2pm", have no calendar date.
+ * They are only counted, so queries can say how
+ * many tasks they could not place.
+ */
+class DateIndex implements TaskListener {
+
+    private TreeMap<Integer, Set<Task>> days;
+    private int undatedCount;
+
+    /**
+     * Constructor for DateIndex. Indexes
+     * the tasks already in the list.
+     *
+     * @param tasks the list of tasks.
+     */
+    DateIndex(TaskList tasks) {
+        this.days = new TreeMap<>();
+        for (int i = 0; i < tasks.getSize(); i++) {
+            taskAdded(i, tasks.getTask(i));
+        }
+    }
+
+    /**
+     * Gets the tasks dated from one day
+     * to another, both included.
+     *
+     * @param from the first day.
+     * @param to   the last day.
+     * @return the tasks, earliest first.
+     */
+    List<Task> between(LocalDate from, LocalDate to) {
+        List<Task> found = new ArrayList<>();
+        for (Set<Task> tasks : days.subMap((int) from.toEpochDay(), true,
+                (int) to.toEpochDay(), true).values()) {
+            found.addAll(tasks);
+        }
+        return found;
+    }
+
+    /**
+     * Gets every dated task up to a day.
+     *
+     * @param to the last day.
+     * @return the tasks, earliest first.
+     */
+    List<Task> upTo(LocalDate to) {
+        List<Task> found = new ArrayList<>();
+        for (Set<Task> tasks : days.headMap((int) to.toEpochDay(), true).values()) {
+            found.addAll(tasks);
+        }
+        return found;
+    }
+
+    /**
+     * Gets the number of deadlines and
+     * events without a calendar date.
+     *
+     * @return the number of undated tasks.
+     */
+    int getUndatedCount() {
+        return undatedCount;
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        if (!(t instanceof Deadline || t instanceof Event)) {
+            return;
+        }
+        int epochDay = t.getEpochDay();
+        if (epochDay == Task.NO_DATE) {
+            undatedCount++;
+        } else {
+            days.computeIfAbsent(epochDay, d -> Collections.newSetFromMap(
+                    new IdentityHashMap<>(1))).add(t);
+        }
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        if (!(t instanceof Deadline || t instanceof Event)) {
+            return;
+        }
+        int epochDay = t.getEpochDay();
+        if (epochDay == Task.NO_DATE) {
+            undatedCount--;
+            return;
+        }
+        Set<Task> tasks = days.get(epochDay);
+        if (tasks != null) {
+            tasks.remove(t);
+            if (tasks.isEmpty()) {
+                days.remove(epochDay);
+            }
+        }
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        // Dates never change, so the task stays on the same day.
+    }
+
+}
@@ -0,0 +1,155 @@
+package banana;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The DateTimeParser class reads the dates and
+ * times users write, such as 2/12/2019 and 1800,
+ * and formats dates the way tasks show them.
+ *
+ * Text is read a character at a time, so text
+ * that is not a date or time gives null rather
+ * than an exception. Formatted dates are kept,
+ * so tasks due on the same day share one string.
+ */
+class DateTimeParser {
+
+    /** The format tasks show their dates in, e.g. Dec 2 2019. */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM d yyyy");
+
+    private static final int PAGE_DAYS = 256;
+    private static final String[][] FORMATTED = new String[256][];
+
+    /**
+     * Reads a date written day/month/year, e.g.
+     * 2/12/2019 or 02/12/2019.
+     *
+     * @param text the text.
+     * @return the date, or null if the text is not one.
+     */
+    static LocalDate parseDate(String text) {
+        int dayEnd = text.indexOf('/');
+        int monthEnd = dayEnd < 0 ? -1 : text.indexOf('/', dayEnd + 1);
+        if (monthEnd < 0 || text.length() - monthEnd - 1 != 4) {
+            return null;
+        }
+        return dateOf(readNumber(text, monthEnd + 1, text.length(), 4),
+                readNumber(text, dayEnd + 1, monthEnd, 2),
+                readNumber(text, 0, dayEnd, 2));
+    }
+
+    /**
+     * Reads a date written year-month-day, e.g. 2019-12-02.
+     *
+     * @param text the text.
+     * @return the date, or null if the text is not one.
+     */
+    static LocalDate parseIsoDate(String text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+        return dateOf(readNumber(text, 0, 4, 4), readNumber(text, 5, 7, 2),
+                readNumber(text, 8, 10, 2));
+    }
+
+    /**
+     * Gets a date, checking that it exists.
+     *
+     * @param year  the year, from 1000 to 9999.
+     * @param month the month, from 1.
+     * @param day   the day of the month, from 1.
+     * @return the date, or null if there is no such day.
+     */
+    static LocalDate dateOf(int year, int month, int day) {
+        if (year < 1000 || year > 9999 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Reads a time written as a number such as
+     * 1800, giving the hour followed by pm.
+     *
+     * @param text the text.
+     * @return the time, e.g. 6pm, or null if the text
+     *         is not a number.
+     */
+    static String parseTime(String text) {
+        boolean isNegative = text.startsWith("-");
+        int start = isNegative || text.startsWith("+") ? 1 : 0;
+        long limit = isNegative ? 1L + Integer.MAX_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        if (start == text.length()) {
+            return null;
+        }
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            value = value * 10 + c - '0';
+            if (value > limit) {
+                return null;
+            }
+        }
+        int hour = (int) ((isNegative ? -value : value) / 100);
+        if (hour > 12) {
+            hour -= 12;
+        }
+        return hour + "pm";
+    }
+
+    /**
+     * Formats a date the way tasks show it.
+     *
+     * @param date the date.
+     * @return the date, e.g. Dec 2 2019.
+     */
+    static String formatDate(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        int page = (int) (epochDay / PAGE_DAYS);
+        if (epochDay < 0 || page >= FORMATTED.length) {
+            return date.format(DATE_FORMAT);
+        }
+        // Racing threads at worst format the same day twice.
+        String[] days = FORMATTED[page];
+        if (days == null) {
+            days = new String[PAGE_DAYS];
+            FORMATTED[page] = days;
+        }
+        int day = (int) (epochDay % PAGE_DAYS);
+        String formatted = days[day];
+        if (formatted == null) {
+            formatted = date.format(DATE_FORMAT);
+            days[day] = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * Reads the digits from start to end, at
+     * least one and at most maxDigits of them.
+     *
+     * @return the number, or -1 if it is not one.
+     */
+    private static int readNumber(String s, int start, int end, int maxDigits) {
+        if (end <= start || end - start > maxDigits) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + c - '0';
+        }
+        return n;
+    }
+
+}
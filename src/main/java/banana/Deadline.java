@@ -1,6 +1,5 @@
 package banana;
 
-import java.time.format.DateTimeFormatter;
 import java.time.LocalDate;
 
 
@@ -42,8 +41,7 @@ class Deadline extends Task {
         this.date = date;
         this.deadline = deadline;
         symbol = "[D]";
-        dateFormat = date.format(
-                DateTimeFormatter.ofPattern("MMM d yyyy"));
+        dateFormat = DateTimeParser.formatDate(date);
     }
 
     /**
@@ -59,6 +57,27 @@ class Deadline extends Task {
         }
     }
 
+    /**
+     * Gets the calendar date, if one was given.
+     *
+     * @return the date, or null for free-text deadlines.
+     */
+    @Override
+    LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the text after the date, or the
+     * whole text if there is no date.
+     *
+     * @return the time or free text.
+     */
+    @Override
+    String getTime() {
+        return deadline;
+    }
+
     @Override
     public String toString() {
         if (date == null) {
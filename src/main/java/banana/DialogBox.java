@@ -23,24 +23,20 @@ import java.io.IOException;
  */
 public class DialogBox extends HBox {
 
+    private static final Font FONT = new Font("American Typewriter", 15);
+
     @FXML
     private Label dialog;
     @FXML
     private ImageView displayPicture;
-    private Image img;
-    private String text;
 
     /**
      * Constructor for the DialogBox
      * class - loads the FXMLLoader
-     * object.
-     *
-     * @param text the user input
-     * @param img  the image to be used
+     * object. The box stays empty
+     * until show is called.
      */
-    private DialogBox(String text, Image img) {
-        this.text = text;
-        this.img = img;
+    DialogBox() {
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource(
                     "/view/DialogBox.fxml"));
@@ -50,22 +46,29 @@ public class DialogBox extends HBox {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        dialog.setFont(FONT);
+        dialog.setMinSize(USE_PREF_SIZE, USE_PREF_SIZE);
+        dialog.setStyle("-fx-background-color : #CBCACA;");
     }
 
     /**
      * Sets the label text and the image
-     * display.
+     * display. The same box can show one
+     * message after another.
      *
-     * @param font  the font of the text
-     * @param color the color of the text
+     * @param text   the text
+     * @param img    the image to be used
+     * @param isUser whether the text is the user's, shown
+     *               on the right, or Banana's, on the left
      */
-    public void setDialogBox(Font font, Color color) {
-        dialog.setFont(font);
-        dialog.setTextFill(color);
+    public void show(String text, Image img, boolean isUser) {
         dialog.setText(text);
-        dialog.setMinSize(USE_PREF_SIZE, USE_PREF_SIZE);
-        dialog.setStyle("-fx-background-color : #CBCACA;");
+        dialog.setTextFill(isUser ? Color.SADDLEBROWN : Color.DARKBLUE);
         displayPicture.setImage(img);
+        setAlignment(isUser ? Pos.TOP_RIGHT : Pos.TOP_LEFT);
+        if (isUser != (getChildren().get(0) == dialog)) {
+            flip();
+        }
     }
 
     /**
@@ -78,9 +81,8 @@ public class DialogBox extends HBox {
      * @return the DialogBox object
      */
     public static DialogBox getUserDialog(String text, Image img) {
-        var db = new DialogBox(text, img);
-        db.setDialogBox(new Font("American Typewriter", 15),
-                Color.SADDLEBROWN);
+        DialogBox db = new DialogBox();
+        db.show(text, img, true);
         return db;
     }
 
@@ -94,25 +96,20 @@ public class DialogBox extends HBox {
      * @return the DialogBox object
      */
     public static DialogBox getDukeDialog(String text, Image img) {
-        var db = new DialogBox(text, img);
-        db.flip();
-        db.setDialogBox(new Font("American Typewriter", 15),
-                Color.DARKBLUE);
+        DialogBox db = new DialogBox();
+        db.show(text, img, false);
         return db;
     }
 
     /**
-     * Pushes the bot image
-     * and text to the left of the screen,
-     * and puts the image to the left
-     * of the text.
+     * Swaps the image and the text,
+     * so the image is on the other
+     * side of the text.
      */
     private void flip() {
-        this.setAlignment(Pos.TOP_LEFT);
         ObservableList<Node> tmp = FXCollections.observableArrayList(this.getChildren());
         FXCollections.reverse(tmp);
         this.getChildren().setAll(tmp);
     }
 
-
 }
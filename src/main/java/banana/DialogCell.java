@@ -0,0 +1,45 @@
+package banana;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.image.Image;
+
+/**
+ * The DialogCell class shows one Message of
+ * the transcript. The list only makes enough
+ * cells to fill the screen and hands them new
+ * messages as it scrolls, so each cell keeps
+ * one DialogBox and refills it.
+ */
+class DialogCell extends ListCell<Message> {
+
+    private final DialogBox box = new DialogBox();
+    private final Image user;
+    private final Image bot;
+
+    /**
+     * Constructor for DialogCell.
+     *
+     * @param user the user's picture.
+     * @param bot  Banana's picture.
+     */
+    DialogCell(Image user, Image bot) {
+        this.user = user;
+        this.bot = bot;
+        setStyle("-fx-background-color: transparent; -fx-padding: 0;");
+        // Fits the cell to the list's width instead of the box's.
+        setPrefWidth(0);
+    }
+
+    @Override
+    protected void updateItem(Message message, boolean isEmpty) {
+        super.updateItem(message, isEmpty);
+        setText(null);
+        if (isEmpty || message == null) {
+            setGraphic(null);
+        } else {
+            box.show(message.getText(), message.isUser() ? user : bot, message.isUser());
+            setGraphic(box);
+        }
+    }
+
+}
@@ -2,14 +2,17 @@ package banana;
 
 import java.io.IOException;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.FileNotFoundException;
+import java.util.ArrayList;
 
 
 /**
  * The Duke class is the program's
  * fundamental class.
  *
+ * One Duke can serve several front-ends at
+ * once, each with its own Session, all
+ * working on the same list of tasks.
+ *
  * @author: Ravi Ananya
  */
 public class Duke {
@@ -17,6 +20,13 @@ public class Duke {
     private String filePath;
     private Storage storage;
     private TaskList tasks;
+    private String loadReport;
+    private Session session = new Session();
+    private ResponseCache responses = new ResponseCache();
+    private Parser parser = new Parser();
+    private volatile boolean isCommitDeferred;
+    private boolean isUnsaved;
+    private boolean isClosed;
 
     /**
      * Constructor for the Duke class.
@@ -30,12 +40,32 @@ public class Duke {
             storage = new Storage(filePath);
             tasks = storage.load(
                     new File(storage.getFilePath()));
+            tasks.indexWords();
+            tasks.indexDates();
+            storage.commit(tasks);
+            loadReport = storage.getLoadReport();
             this.filePath = filePath;
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             e.printStackTrace();
+            tasks = new TaskList(new ArrayList<>());
+            isUnsaved = true;
+            loadReport = " OOPS!!! I could not load your saved tasks,"
+                    + "\n so I am starting with an empty list."
+                    + "\n Changes could not be saved either, so I will"
+                    + "\n not make any until the file is fixed or moved.";
         }
     }
 
+    /**
+     * Gets what went wrong loading the saved
+     * tasks, to show when the program starts.
+     *
+     * @return the report, or an empty string if all went well.
+     */
+    public String getLoadReport() {
+        return loadReport;
+    }
+
     /**
      * You should have your own function to generate a
      * response to user input. Replace this stub with
@@ -45,68 +75,138 @@ public class Duke {
      * @return the output
      */
     protected String getResponse(String input) {
+        return getResponse(session, input);
+    }
+
+    /**
+     * Generates the response to one session's
+     * input. Sessions may call this at the same
+     * time: commands that only read the list run
+     * side by side, while each change runs alone.
+     * Responses to reads other than export are
+     * cached until the list next changes. If the
+     * saved tasks could not be loaded, changes
+     * are refused, since they could not be saved.
+     *
+     * @param session the session the input came from.
+     * @param input   the user input.
+     * @return the output.
+     */
+    public String getResponse(Session session, String input) {
+        return getResponse(session, parser.parse(input));
+    }
+
+    /**
+     * Generates the response to input that has
+     * already been parsed, e.g. on another thread.
+     *
+     * @param session the session the input came from.
+     * @param command the parsed input.
+     * @return the output.
+     */
+    String getResponse(Session session, ParsedCommand command) {
+        String input = command.getInput();
         String output = "";
+        boolean isReadOnly = command.isReadOnly();
+        if (isUnsaved && !isReadOnly) {
+            return " OOPS!!! I could not load your saved tasks, so"
+                    + "\n I cannot save changes. Fix or move the file"
+                    + "\n and start me again.";
+        }
+        long stamp = isReadOnly ? tasks.lockForReading() : tasks.lockForWriting();
+        if (!isReadOnly && isClosed) {
+            tasks.unlock(stamp);
+            return " OOPS!!! I am shutting down, so I cannot"
+                    + "\n make any more changes.";
+        }
+        History history = session.getHistory();
         try {
-            Parser p = new Parser(input);
-            output = p.parseInput(tasks);
-            writeToFile();
+            if (!isReadOnly) {
+                history.begin(input);
+                tasks.addListener(history);
+            }
+            boolean isCached = command.isCacheable();
+            String cached = isCached ? responses.get(input, tasks.getVersion()) : null;
+            if (cached != null) {
+                return cached;
+            }
+            output = parser.execute(command, tasks, session);
+            if (isCached) {
+                responses.put(input, tasks.getVersion(), output);
+            } else if (!isReadOnly && !isCommitDeferred) {
+                storage.commit(tasks);
+            }
         } catch (DukeException | IOException e) {
             output = e.getMessage();
+        } finally {
+            if (!isReadOnly) {
+                tasks.removeListener(history);
+                history.end();
+            }
+            tasks.unlock(stamp);
         }
         return output;
     }
 
     /**
-     * Writes to the Tasks.txt file everytime
-     * a change in tasks has occurred.
+     * Stops saving the list after each change.
+     * Changes are then only saved by commit
+     * and close, which suits long scripts.
+     */
+    void deferCommits() {
+        isCommitDeferred = true;
+    }
+
+    /**
+     * Hands every change made since the last
+     * commit to the background writer.
      *
-     * @throws IOException if not able to write to the file.
+     * @throws IOException if an earlier write failed.
      */
-    public void writeToFile() throws IOException {
-        String text = "";
-        FileWriter fw = new FileWriter(filePath, false);
-        for (int i = 0; i < tasks.getSize(); i++) {
-            String doneStr = "No";
-            Task currentTask = tasks.getTask(i);
-            assert currentTask != null;
-            if (currentTask.getIsDone().equals("[X]")) {
-                doneStr = "Yes";
-            }
-            if (currentTask instanceof ToDo) {
-                text += "T ~ " + doneStr + " ~ "
-                        + currentTask.getDescription() + "\n";
-            } else if (currentTask instanceof Deadline) {
-                Deadline dl = (Deadline) currentTask;
-                text += "D ~ " + doneStr + " ~ "
-                        + currentTask.getDescription() + " ~ "
-                        + dl.getDeadLine() + "\n";
-            } else if (currentTask instanceof Event) {
-                Event ev = (Event) currentTask;
-                text += "E ~ " + doneStr + " ~ "
-                        + currentTask.getDescription() + " ~ "
-                        + ev.getEvent() + "\n";
-            } else {
-                text += doneStr + " ~ "
-                        + currentTask.getDescription() + "\n";
-            }
+    public void commit() throws IOException {
+        long stamp = tasks.lockForWriting();
+        try {
+            storage.commit(tasks);
+        } finally {
+            tasks.unlock(stamp);
         }
-        fw.write(text);
-        fw.close();
     }
 
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
+    /**
+     * Saves every pending change and stops
+     * the background writer. Called on bye.
+     * Changes asked for from then on, e.g. by
+     * other connections to a server, are refused
+     * rather than lost.
+     */
+    public void close() {
+        long stamp = tasks.lockForWriting();
+        try {
+            isClosed = true;
+            if (isCommitDeferred) {
+                storage.commit(tasks);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            tasks.unlock(stamp);
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /**
+     * Saves the current tasks in the chosen
+     * format, waiting until they are on disk.
+     *
+     * @throws IOException if not able to write to the file.
+     */
+    public void writeToFile() throws IOException {
+        commit();
+        storage.flush();
+    }
 
+}
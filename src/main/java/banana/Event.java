@@ -1,6 +1,5 @@
 package banana;
 
-import java.time.format.DateTimeFormatter;
 import java.time.LocalDate;
 
 
@@ -42,8 +41,7 @@ class Event extends Task {
         this.date = date;
         this.timing = timing;
         symbol = "[E]";
-        dateFormat = date.format(
-                DateTimeFormatter.ofPattern("MMM d yyyy"));
+        dateFormat = DateTimeParser.formatDate(date);
     }
 
     /**
@@ -59,6 +57,27 @@ class Event extends Task {
         }
     }
 
+    /**
+     * Gets the calendar date, if one was given.
+     *
+     * @return the date, or null for free-text events.
+     */
+    @Override
+    LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the text after the date, or the
+     * whole text if there is no date.
+     *
+     * @return the time or free text.
+     */
+    @Override
+    String getTime() {
+        return timing;
+    }
+
     @Override
     public String toString() {
         if (date == null) {
@@ -0,0 +1,214 @@
+package banana;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * The History class records what each command
+ * changed, so commands can be undone and redone
+ * in order without reading their input again.
+ *
+ * While a command runs it listens to the list and
+ * keeps each change with what is needed to reverse
+ * it: the position and the task added or removed,
+ * or the done status set. Undoing walks a step's
+ * changes backwards, and redoing walks them forwards,
+ * each change costing one list operation.
+ *
+ * At most banana.undo.depth commands (100 unless
+ * set) are kept, and at most MAX_CHANGES changes in
+ * all; the oldest steps are dropped first.
+ */
+class History implements TaskListener {
+
+    /** The most changes kept across every step. */
+    static final int MAX_CHANGES = 1_000_000;
+
+    private static final int DEPTH = Integer.getInteger("banana.undo.depth", 100);
+
+    private static final byte ADDED = 0;
+    private static final byte REMOVED = 1;
+    private static final byte DONE = 2;
+    private static final byte NOT_DONE = 3;
+
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private Step current;
+    private int changeCount;
+
+    /**
+     * Starts recording the changes of a command.
+     *
+     * @param input the command.
+     */
+    void begin(String input) {
+        current = new Step(input);
+    }
+
+    /**
+     * Stops recording. If the command changed the
+     * list it becomes the step to undo next, and
+     * nothing undone before it can be redone.
+     */
+    void end() {
+        Step step = current;
+        current = null;
+        if (step == null || step.count == 0) {
+            return;
+        }
+        for (Step redo : redoSteps) {
+            changeCount -= redo.count;
+        }
+        redoSteps.clear();
+        undoSteps.push(step);
+        changeCount += step.count;
+        while (undoSteps.size() > DEPTH || changeCount > MAX_CHANGES) {
+            changeCount -= undoSteps.removeLast().count;
+        }
+    }
+
+    /**
+     * Undoes up to count of the latest steps.
+     *
+     * @param tasks the list of tasks.
+     * @param count the number of steps.
+     * @return what was undone, one line per step, or an
+     *         empty string if there was nothing to undo.
+     */
+    String undo(TaskList tasks, int count) {
+        current = null;
+        StringBuilder undone = new StringBuilder();
+        for (int i = 0; i < count && !undoSteps.isEmpty(); i++) {
+            Step step = undoSteps.pop();
+            step.undo(tasks);
+            redoSteps.push(step);
+            undone.append(i == 0 ? " " : "\n ").append(step.describeUndo());
+        }
+        return undone.toString();
+    }
+
+    /**
+     * Redoes up to count of the latest undone steps.
+     *
+     * @param tasks the list of tasks.
+     * @param count the number of steps.
+     * @return what was redone, one line per step, or an
+     *         empty string if there was nothing to redo.
+     */
+    String redo(TaskList tasks, int count) {
+        current = null;
+        StringBuilder redone = new StringBuilder();
+        for (int i = 0; i < count && !redoSteps.isEmpty(); i++) {
+            Step step = redoSteps.pop();
+            step.redo(tasks);
+            undoSteps.push(step);
+            redone.append(i == 0 ? " " : "\n ").append("Redid ").append(step.input);
+        }
+        return redone.toString();
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        if (current != null) {
+            current.add(ADDED, index, t);
+        }
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        if (current != null) {
+            current.add(REMOVED, index, t);
+        }
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        if (current != null) {
+            current.add(t.getIsDone().equals("[X]") ? DONE : NOT_DONE, index, null);
+        }
+    }
+
+    /**
+     * The changes made by one command, in order.
+     */
+    private static class Step {
+
+        private final String input;
+        private byte[] kinds = new byte[1];
+        private int[] indices = new int[1];
+        private Task[] tasks = new Task[1];
+        private int count;
+
+        Step(String input) {
+            this.input = input;
+        }
+
+        void add(byte kind, int index, Task t) {
+            if (count == kinds.length) {
+                kinds = Arrays.copyOf(kinds, count * 2);
+                indices = Arrays.copyOf(indices, count * 2);
+                tasks = Arrays.copyOf(tasks, count * 2);
+            }
+            kinds[count] = kind;
+            indices[count] = index;
+            tasks[count] = t;
+            count++;
+        }
+
+        void undo(TaskList list) {
+            for (int i = count - 1; i >= 0; i--) {
+                int index = indices[i];
+                if (kinds[i] == ADDED) {
+                    remove(list, index, tasks[i]);
+                } else if (kinds[i] == REMOVED) {
+                    list.insertTask(Math.min(index, list.getSize()), tasks[i]);
+                } else if (index < list.getSize()) {
+                    list.setDone(index, kinds[i] == NOT_DONE);
+                }
+            }
+        }
+
+        void redo(TaskList list) {
+            for (int i = 0; i < count; i++) {
+                int index = indices[i];
+                if (kinds[i] == ADDED) {
+                    list.insertTask(Math.min(index, list.getSize()), tasks[i]);
+                } else if (kinds[i] == REMOVED) {
+                    remove(list, index, tasks[i]);
+                } else if (index < list.getSize()) {
+                    list.setDone(index, kinds[i] == DONE);
+                }
+            }
+        }
+
+        /**
+         * Removes a task from where it was recorded,
+         * or from wherever it is now if another
+         * session has moved it since.
+         */
+        private static void remove(TaskList list, int index, Task t) {
+            if (index < list.getSize() && isSame(list.getTask(index), t)) {
+                list.removeTaskAt(index);
+            } else {
+                list.removeTask(t);
+            }
+        }
+
+        private static boolean isSame(Task a, Task b) {
+            return a == b || a.toString().equals(b.toString());
+        }
+
+        String describeUndo() {
+            if (count == 1 && kinds[0] == ADDED) {
+                return "Removed task " + tasks[0].getDescription();
+            } else if (count == 1 && kinds[0] == REMOVED) {
+                return "Undid delete on task " + (indices[0] + 1);
+            } else if (count == 1) {
+                return "Undid done on task " + (indices[0] + 1);
+            }
+            return "Undid " + input;
+        }
+    }
+
+}
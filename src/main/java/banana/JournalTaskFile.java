@@ -0,0 +1,324 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The JournalTaskFile class keeps a text
+ * snapshot of the tasks plus a journal of
+ * every change made since, so that each
+ * change costs one appended line instead
+ * of a rewrite of the whole file.
+ *
+ * Journal lines look like:
+ * "+ ~ index ~ task line", "- ~ index"
+ * and "x ~ index ~ Yes/No".
+ *
+ * Every journal starts with a line, "@ ~ length
+ * ~ crc", naming the snapshot it belongs to.
+ * Once enough records pile up, a checkpoint
+ * writes a fresh snapshot and then starts a new
+ * journal for it, so a crash between the two
+ * leaves an old journal that names the old
+ * snapshot and is not replayed. A journal with
+ * no such line is not replayed either. Once a checkpoint
+ * is due, records stop being kept, so a bulk
+ * change is written as one snapshot.
+ */
+class JournalTaskFile implements TaskFile {
+
+    private static final int DEFAULT_CHECKPOINT_RECORDS = 10000;
+
+    private File snapshot;
+    private File journal;
+    private StringBuilder pending;
+    private int checkpointRecords;
+    private int recordCount;
+
+    /**
+     * Constructor for JournalTaskFile.
+     *
+     * @param snapshot the text file holding the snapshot.
+     * @param journal  the file changes are appended to.
+     */
+    public JournalTaskFile(File snapshot, File journal) {
+        this.snapshot = snapshot;
+        this.journal = journal;
+        this.pending = new StringBuilder();
+        this.checkpointRecords = Integer.getInteger("banana.checkpoint",
+                DEFAULT_CHECKPOINT_RECORDS);
+    }
+
+    /**
+     * Loads the snapshot and replays the journal
+     * on top of it, or starts a journal for the
+     * snapshot if there is none that names it.
+     *
+     * @param report where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if either file cannot be read.
+     */
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        TaskList tasks = Storage.readText(snapshot, report);
+        String header = header(snapshot);
+        if (!replay(tasks, header, report)) {
+            replaceJournal(header + "\n", true);
+        }
+        if (!report.isClean()) {
+            // Checkpoint straight away so damaged lines are not read again.
+            recordCount = checkpointRecords;
+        }
+        return tasks;
+    }
+
+    /**
+     * Replays the journal if it names the snapshot.
+     * A journal naming another snapshot is left
+     * over from a checkpoint cut short, unless the
+     * snapshot is damaged: then, like a journal
+     * with no header, its records may be changes
+     * the snapshot lacks, so they are set aside
+     * rather than dropped.
+     *
+     * @return whether it did.
+     */
+    private boolean replay(TaskList tasks, String header, LoadReport report)
+            throws IOException {
+        if (!journal.exists()) {
+            return false;
+        }
+        try (BufferedReader br = Files.newBufferedReader(
+                journal.toPath(), StandardCharsets.UTF_8)) {
+            String first = br.readLine();
+            if (!header.equals(first)) {
+                boolean hasHeader = first != null && first.startsWith("@ ~ ");
+                boolean hasRecords = hasHeader ? br.readLine() != null : first != null;
+                if (hasRecords && !hasHeader) {
+                    report.setAside(journal, "were not applied, as it names no snapshot");
+                } else if (hasRecords && !report.isClean()) {
+                    report.setAside(journal, "were not applied, as "
+                            + snapshot.getName() + " is damaged");
+                }
+                return false;
+            }
+            for (String line = br.readLine(); line != null; line = br.readLine()) {
+                if (!apply(tasks, line)) {
+                    // A torn last line means the program stopped mid-write.
+                    // Checkpoint, so records are not appended after it.
+                    recordCount = checkpointRecords;
+                    break;
+                }
+                recordCount++;
+            }
+        }
+        return true;
+    }
+
+    private boolean apply(TaskList tasks, String line) {
+        String[] record = line.split(" ~ ", 3);
+        try {
+            int index = Integer.parseInt(record[1]);
+            if (record[0].equals("+") && record.length == 3) {
+                tasks.insertTask(index, Storage.decode(record[2]));
+            } else if (record[0].equals("-")) {
+                tasks.removeTaskAt(index);
+            } else if (record[0].equals("x") && record.length == 3) {
+                tasks.setDone(index, record[2].equals("Yes"));
+            } else {
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes the pending records, or a checkpoint
+     * of the whole list once the journal has
+     * grown past the checkpoint limit.
+     *
+     * @param tasks the current list of tasks.
+     * @return the pending write, or null if nothing changed.
+     */
+    @Override
+    public Write capture(TaskList tasks) {
+        if (recordCount >= checkpointRecords) {
+            recordCount = 0;
+            pending.setLength(0);
+            return new Checkpoint(tasks.copy());
+        }
+        if (pending.length() == 0) {
+            return null;
+        }
+        Records records = new Records(pending.toString());
+        pending.setLength(0);
+        return records;
+    }
+
+    /**
+     * Appends every captured record with a single
+     * write to the journal. If the group starts
+     * with a checkpoint, the snapshot is replaced
+     * first and the records go into a new journal.
+     *
+     * @param writes   the captured records, oldest first.
+     * @param isForced whether to fsync before returning.
+     * @throws IOException if either file cannot be written.
+     */
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        StringBuilder group = new StringBuilder();
+        for (Write w : writes) {
+            if (w instanceof Records) {
+                group.append(((Records) w).text);
+            }
+        }
+        if (writes.get(0) instanceof Checkpoint) {
+            Checkpoint checkpoint = (Checkpoint) writes.get(0);
+            Storage.writeText(snapshot.toPath(), checkpoint.getTasks(), isForced);
+            group.insert(0, header(snapshot) + "\n");
+            replaceJournal(group, isForced);
+        } else {
+            append(group, isForced);
+        }
+    }
+
+    private void append(CharSequence text, boolean isForced) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(journal.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            long start = channel.size();
+            try {
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                if (isForced) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                // Drops a partly written group, so retrying it cannot repeat records.
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void replaceJournal(CharSequence text, boolean isForced) throws IOException {
+        Path temp = journal.toPath().resolveSibling(journal.getName() + ".tmp");
+        ByteBuffer buf = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+        Files.move(temp, journal.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets the journal header line naming
+     * the current contents of a snapshot.
+     *
+     * @param f the snapshot file.
+     * @return the header line.
+     * @throws IOException if the file cannot be read.
+     */
+    private static String header(File f) throws IOException {
+        CRC32 crc = new CRC32();
+        long length = 0;
+        try (InputStream in = new FileInputStream(f)) {
+            byte[] buf = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                crc.update(buf, 0, read);
+                length += read;
+            }
+        }
+        return "@ ~ " + length + " ~ " + Long.toHexString(crc.getValue());
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        if (++recordCount >= checkpointRecords) {
+            pending.setLength(0);
+            return;
+        }
+        pending.append("+ ~ ").append(index).append(" ~ ");
+        Storage.encode(t, pending);
+        pending.append('\n');
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        if (++recordCount >= checkpointRecords) {
+            pending.setLength(0);
+            return;
+        }
+        pending.append("- ~ ").append(index).append('\n');
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        if (++recordCount >= checkpointRecords) {
+            pending.setLength(0);
+            return;
+        }
+        pending.append("x ~ ").append(index).append(" ~ ")
+                .append(t.getIsDone().equals("[X]") ? "Yes" : "No")
+                .append('\n');
+    }
+
+    /**
+     * Journal lines waiting to be appended.
+     */
+    private static class Records implements Write {
+
+        private String text;
+
+        Records(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean isSnapshot() {
+            return false;
+        }
+    }
+
+    /**
+     * A copy of the whole list that replaces
+     * the snapshot and empties the journal.
+     */
+    private static class Checkpoint extends Snapshot {
+
+        Checkpoint(TaskList tasks) {
+            super(tasks);
+        }
+    }
+
+}
@@ -2,13 +2,50 @@ package banana;
 
 import javafx.application.Application;
 
+import java.io.IOException;
+
 /**
- * Launches the program.
+ * Launches the program. Given --server and
+ * optionally a port, it runs without a window
+ * and takes commands over TCP instead. Given
+ * --batch and a file, or - or nothing for
+ * standard input, it runs the commands in it
+ * and exits.
  */
 public class Launcher {
 
-    public static void main(String[] args) {
+    private static final String USAGE = "Usage: banana [--server [port]] [--batch [file|-]]";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? parsePort(args[1]) : Server.DEFAULT_PORT;
+            if (port < 0) {
+                System.err.println("The port must be a number from 0 to 65535.");
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+            Server.run(port);
+            return;
+        } else if (args.length > 0 && args[0].equals("--batch")) {
+            Batch.run(args.length > 1 ? args[1] : "-");
+            return;
+        }
         Application.launch(Main.class, args);
     }
 
+    /**
+     * Reads the port given after --server.
+     *
+     * @param text the port.
+     * @return the port, or -1 if the text is not one.
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text);
+            return port <= 0xFFFF ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
 }
@@ -0,0 +1,134 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The LoadClient class puts a Server under load
+ * over the loopback address: many connections at
+ * once, each sending a mix of adds, lists and finds
+ * and waiting for every response. It prints the
+ * throughput and response times, and fails if any
+ * response is an error.
+ */
+class LoadClient {
+
+    private static final String[] COMMANDS = {
+        "todo load %d", "list 1-10", "find load %d", "list --page 1"
+    };
+
+    /**
+     * Runs the load test. With no port, it starts its
+     * own server on a temporary list.
+     *
+     * @param args the connections (default 2000), commands per
+     *             connection (default 20) and the port, if any.
+     * @throws Exception if the test cannot run or a response is wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Server server = null;
+        int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            Path dir = Files.createTempDirectory("banana-load");
+            server = new Server(new Duke(dir.resolve("Tasks.txt").toString()), 0);
+            port = server.getPort();
+            new Thread(server::serve, "banana-server").start();
+        }
+
+        ExecutorService executor = Server.newExecutor();
+        CountDownLatch allConnected = new CountDownLatch(connections);
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            int id = i;
+            results.add(executor.submit(() -> run(port, id, commands, allConnected)));
+        }
+        long[] times = new long[connections * commands];
+        int count = 0;
+        for (Future<long[]> result : results) {
+            long[] connectionTimes = result.get();
+            System.arraycopy(connectionTimes, 0, times, count, connectionTimes.length);
+            count += connectionTimes.length;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        if (server != null) {
+            server.close();
+        }
+
+        Arrays.sort(times);
+        System.out.printf("%d connections, %d commands in %.2fs: %.0f commands/s%n",
+                connections, count, seconds, count / seconds);
+        System.out.printf("response time p50 %.2fms, p99 %.2fms, max %.2fms%n",
+                times[count / 2] / 1e6, times[count * 99 / 100] / 1e6, times[count - 1] / 1e6);
+    }
+
+    /**
+     * Opens one connection, waits until every other
+     * connection is open too, then sends its commands.
+     *
+     * @return the time each response took, in nanoseconds.
+     */
+    private static long[] run(int port, int id, int commands, CountDownLatch allConnected)
+            throws IOException, InterruptedException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+            allConnected.countDown();
+            allConnected.await();
+            long[] times = new long[commands];
+            for (int i = 0; i < commands; i++) {
+                String command = String.format(COMMANDS[i % COMMANDS.length], id);
+                long sent = System.nanoTime();
+                out.write(command + "\n");
+                out.flush();
+                String response = readResponse(in);
+                times[i] = System.nanoTime() - sent;
+                if (response.startsWith(" OOPS")) {
+                    throw new IOException(command + " failed:" + response);
+                }
+            }
+            out.write("bye\n");
+            out.flush();
+            readResponse(in);
+            return times;
+        }
+    }
+
+    private static String readResponse(BufferedReader in) throws IOException {
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.isEmpty()) {
+            response.append(line).append('\n');
+        }
+        if (line == null) {
+            throw new IOException("The server closed the connection");
+        }
+        return response.toString();
+    }
+
+}
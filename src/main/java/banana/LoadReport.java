@@ -0,0 +1,155 @@
+package banana;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * The LoadReport class records the tasks that
+ * could not be read while loading. Each bad line
+ * is moved to a quarantine file named after the
+ * file it came from, e.g. Tasks.txt.bad, so the
+ * rest of the tasks still load and nothing is
+ * silently thrown away. Damaged parts of binary
+ * files are kept there as Base64, and whole files
+ * that cannot safely be used are copied there too.
+ */
+class LoadReport {
+
+    private int dropped;
+    private String firstDropped;
+    private List<File> quarantines = new ArrayList<>();
+    private List<String> notes = new ArrayList<>();
+
+    /**
+     * Moves a run of bad lines from one file into
+     * its quarantine file and counts them.
+     *
+     * @param source      the file the lines came from.
+     * @param lineNumbers the line number of each bad line.
+     * @param lines       the bad lines.
+     * @throws IOException if the quarantine file cannot be written.
+     */
+    synchronized void quarantine(File source, List<Long> lineNumbers,
+                                 List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        File bad = new File(source.getPath() + ".bad");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            sb.append(lineNumbers.get(i)).append(": ").append(lines.get(i)).append('\n');
+        }
+        Files.write(bad.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (firstDropped == null) {
+            firstDropped = source.getName() + " line " + lineNumbers.get(0);
+        }
+        if (!quarantines.contains(bad)) {
+            quarantines.add(bad);
+        }
+        dropped += lines.size();
+    }
+
+    /**
+     * Moves a part of a binary file that could not
+     * be read, such as a damaged block or record,
+     * into its quarantine file as Base64 text, and
+     * counts the tasks it held.
+     *
+     * @param source    the file the part came from.
+     * @param part      where the part was, e.g. "block 3".
+     * @param taskCount the number of tasks in the part.
+     * @param bytes     the part as stored.
+     * @throws IOException if the quarantine file cannot be written.
+     */
+    synchronized void quarantine(File source, String part, int taskCount,
+                                 byte[] bytes) throws IOException {
+        File bad = new File(source.getPath() + ".bad");
+        String line = part + ": " + Base64.getEncoder().encodeToString(bytes) + "\n";
+        Files.write(bad.toPath(), line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (firstDropped == null) {
+            firstDropped = source.getName() + " " + part;
+        }
+        if (!quarantines.contains(bad)) {
+            quarantines.add(bad);
+        }
+        dropped += taskCount;
+    }
+
+    /**
+     * Copies a whole file that could not be used
+     * into its quarantine file, such as a journal
+     * that may not belong to the snapshot it was
+     * found with.
+     *
+     * @param source the file.
+     * @param reason why it was not used, e.g.
+     *               "were not applied".
+     * @throws IOException if either file cannot be read or written.
+     */
+    synchronized void setAside(File source, String reason) throws IOException {
+        File bad = new File(source.getPath() + ".bad");
+        Files.write(bad.toPath(), Files.readAllBytes(source.toPath()),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        notes.add("The changes in " + source.getName() + " " + reason + ".");
+        if (!quarantines.contains(bad)) {
+            quarantines.add(bad);
+        }
+    }
+
+    /**
+     * Records something else that went wrong
+     * while loading, for the user to be told.
+     *
+     * @param note the sentence to show.
+     */
+    synchronized void note(String note) {
+        notes.add(note);
+    }
+
+    /**
+     * Checks if every line was read.
+     *
+     * @return whether nothing was dropped.
+     */
+    synchronized boolean isClean() {
+        return dropped == 0 && notes.isEmpty();
+    }
+
+    /**
+     * Describes what was dropped, for
+     * showing to the user.
+     *
+     * @return the description, or an empty string if clean.
+     */
+    synchronized String describe() {
+        if (isClean()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(" Some saved tasks were damaged!");
+        if (dropped > 0) {
+            sb.append("\n ").append(dropped).append(dropped == 1 ? " task" : " tasks")
+                    .append(" could not be read, starting at ").append(firstDropped).append('.');
+        }
+        for (String note : notes) {
+            sb.append("\n ").append(note);
+        }
+        if (!quarantines.isEmpty()) {
+            sb.append("\n They were moved to:");
+        }
+        for (File f : quarantines) {
+            sb.append("\n ").append(f.getPath());
+        }
+        return sb.toString();
+    }
+
+}
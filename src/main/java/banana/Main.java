@@ -38,4 +38,13 @@ public class Main extends Application {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Saves any changes still waiting to
+     * be written when the window closes.
+     */
+    @Override
+    public void stop() {
+        duke.close();
+    }
 }
\ No newline at end of file
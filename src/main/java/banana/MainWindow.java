@@ -5,29 +5,31 @@ import javafx.application.Platform;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
 import javafx.fxml.FXML;
 
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.Background;
-import javafx.scene.layout.BackgroundFill;
-import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
 
 /**
  * Handles user input and output to screen,
  * the scroller, the text field and the
  * send button.
+ *
+ * The whole conversation is kept as Messages
+ * in a ListView, which only makes dialog
+ * boxes for the messages on screen, so long
+ * sessions scroll as smoothly as short ones.
  */
 public class MainWindow extends AnchorPane {
 
     @FXML
-    private ScrollPane scrollPane;
-    @FXML
-    private VBox dialogContainer;
+    private ListView<Message> dialogList;
     @FXML
     private TextField userInput;
     @FXML
@@ -38,25 +40,24 @@ public class MainWindow extends AnchorPane {
             "/images/levi.png"));
     private Image bot = new Image(this.getClass().getResourceAsStream(
             "/images/hange.png"));
+    private ObservableList<Message> messages = FXCollections.observableArrayList();
 
     /**
      * Sets the color of the background
-     * to be dark green, sets the scrollPane
-     * features, initialises the Image
-     * objects and prints the welcome label.
+     * to be dark green, sets the list of
+     * messages up to show each in a dialog
+     * box and prints the welcome label.
      */
     @FXML
     public void initialize() {
-        dialogContainer.setBackground(new Background(new BackgroundFill(
-                Color.DARKSEAGREEN, null, null)));
-        scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
-
-        dialogContainer.getChildren().add(
-                DialogBox.getDukeDialog(
-                        " Hello I'm Banana! \n "
-                                + "How can I help you?", bot)
-        );
+        dialogList.setStyle("-fx-background-color: darkseagreen;"
+                + " -fx-control-inner-background: darkseagreen;");
+        dialogList.setFocusTraversable(false);
+        dialogList.setItems(messages);
+        dialogList.setCellFactory(list -> new DialogCell(user, bot));
+
+        addMessages(new Message(" Hello I'm Banana! \n "
+                + "How can I help you?", false));
         handleActions();
     }
 
@@ -67,31 +68,41 @@ public class MainWindow extends AnchorPane {
      */
     public void setDuke(Duke d) {
         duke = d;
+        String report = duke.getLoadReport();
+        if (!report.isEmpty()) {
+            addMessages(new Message(report, false));
+        }
     }
 
     /**
-     * Creates two dialog boxes, one echoing user input and
-     * the other containing Duke's reply and then appends
-     * them to the dialog container. Clears the user input
-     * after processing.
+     * Adds two messages, one echoing user input and
+     * the other containing Duke's reply, to the end of
+     * the conversation. Clears the user input after
+     * processing.
      */
     @FXML
     private void handleUserInput() {
         String input = userInput.getText();
         if (input.equals("bye")) {
+            duke.close();
             Platform.exit();
             return;
         }
         String response = duke.getResponse(input);
-        Parser.setPrevInput(input);
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input + " ",
-                        user),
-                DialogBox.getDukeDialog(response, bot)
-        );
+        addMessages(new Message(input + " ", true),
+                new Message(response, false));
         userInput.clear();
     }
 
+    /**
+     * Adds messages to the end of the
+     * conversation and scrolls down to them.
+     */
+    private void addMessages(Message... added) {
+        messages.addAll(added);
+        dialogList.scrollTo(messages.size() - 1);
+    }
+
     /**
      * Allows the send button and TextField
      * to handle user input.
@@ -0,0 +1,43 @@
+package banana;
+
+/**
+ * The Message class is one entry of the chat
+ * transcript: the text and who said it. The
+ * window keeps every Message, but only makes
+ * dialog boxes for those on screen.
+ */
+class Message {
+
+    private final String text;
+    private final boolean isUser;
+
+    /**
+     * Constructor for Message.
+     *
+     * @param text   the text shown.
+     * @param isUser whether the user said it, rather than Banana.
+     */
+    Message(String text, boolean isUser) {
+        this.text = text;
+        this.isUser = isUser;
+    }
+
+    /**
+     * Gets the text shown.
+     *
+     * @return the text.
+     */
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Checks if the user said it.
+     *
+     * @return whether it came from the user.
+     */
+    boolean isUser() {
+        return isUser;
+    }
+
+}
@@ -0,0 +1,268 @@
+package banana;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32C;
+
+/**
+ * The ParallelTextLoader class reads a text
+ * task file by cutting it into ranges that
+ * end on line breaks and decoding the ranges
+ * on the common fork-join pool. The ranges
+ * are joined back in file order, so the
+ * tasks come out exactly as a line-by-line
+ * read would produce them.
+ *
+ * A line that cannot be decoded, or whose
+ * checksum does not match, is set aside in
+ * the same pass and handed to a LoadReport
+ * once the ranges are joined.
+ */
+class ParallelTextLoader {
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    // Leaves room below the largest array for the line that ends a range.
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    private static final int MAX_RANGE_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Reads a file of text-format tasks.
+     *
+     * @param f the file.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file cannot be read.
+     */
+    static TaskList load(File f) throws IOException {
+        return load(f, false, new LoadReport());
+    }
+
+    /**
+     * Reads a file of text-format tasks, moving
+     * any damaged lines into quarantine.
+     *
+     * @param f             the file.
+     * @param isChecksummed whether each line starts with its CRC32C.
+     * @param report        where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file cannot be read.
+     */
+    static TaskList load(File f, boolean isChecksummed, LoadReport report) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = split(channel);
+            List<ForkJoinTask<Chunk>> parts = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                parts.add(ForkJoinTask.adapt(() -> parse(channel, start, end, isChecksummed)));
+            }
+            if (parts.size() > 1) {
+                for (ForkJoinTask<Chunk> part : parts) {
+                    ForkJoinPool.commonPool().execute(part);
+                }
+            }
+            int total = 0;
+            List<Chunk> results = new ArrayList<>();
+            for (ForkJoinTask<Chunk> part : parts) {
+                Chunk chunk = parts.size() > 1 ? part.join() : part.invoke();
+                total += chunk.tasks.size();
+                results.add(chunk);
+            }
+            ArrayList<Task> tasks = new ArrayList<>(total);
+            List<Long> badLineNumbers = new ArrayList<>();
+            List<String> badLines = new ArrayList<>();
+            long firstLine = 1;
+            for (Chunk chunk : results) {
+                tasks.addAll(chunk.tasks);
+                for (int i = 0; i < chunk.badLines.size(); i++) {
+                    badLineNumbers.add(firstLine + chunk.badLineNumbers.get(i));
+                    badLines.add(chunk.badLines.get(i));
+                }
+                firstLine += chunk.lineCount;
+            }
+            report.quarantine(f, badLineNumbers, badLines);
+            return new TaskList(tasks);
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cuts the file into ranges that each
+     * start just after a line break and are
+     * small enough to read into one array.
+     *
+     * @param channel the open file.
+     * @return the range boundaries, from 0 to the file size.
+     * @throws IOException if the file cannot be read, or a line
+     *                     is too long to fit in a range.
+     */
+    private static long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < size) {
+            long lineEnd = findLineEnd(channel, position, probe);
+            if (lineEnd >= size) {
+                break;
+            }
+            checkRange(bounds.get(bounds.size() - 1), lineEnd + 1);
+            bounds.add(lineEnd + 1);
+            position = lineEnd + 1 + chunkSize;
+        }
+        checkRange(bounds.get(bounds.size() - 1), size);
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static void checkRange(long start, long end) throws IOException {
+        if (end - start > MAX_RANGE_SIZE) {
+            throw new IOException("a line at byte " + start + " is too long to read");
+        }
+    }
+
+    private static long findLineEnd(FileChannel channel, long from,
+                                    ByteBuffer probe) throws IOException {
+        long position = from;
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Decodes the lines between start and end.
+     *
+     * @param channel       the open file.
+     * @param start         the first byte of the range.
+     * @param end           one past the last byte of the range.
+     * @param isChecksummed whether each line starts with its CRC32C.
+     * @return the tasks in the range in order, and the lines that failed.
+     */
+    private static Chunk parse(FileChannel channel, long start, long end,
+                               boolean isChecksummed) {
+        byte[] bytes = new byte[(int) (end - start)];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        try {
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, start + buf.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Chunk chunk = new Chunk(bytes.length / 32);
+        CRC32C crc = new CRC32C();
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                int lineEnd = i;
+                if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart) {
+                    Task t = isChecksummed
+                            ? decodeChecked(bytes, lineStart, lineEnd, crc)
+                            : decode(bytes, lineStart, lineEnd);
+                    if (t != null) {
+                        chunk.tasks.add(t);
+                    } else if (!isBlank(bytes, lineStart, lineEnd)) {
+                        chunk.badLineNumbers.add(chunk.lineCount);
+                        chunk.badLines.add(new String(bytes, lineStart, lineEnd - lineStart,
+                                StandardCharsets.UTF_8));
+                    }
+                }
+                if (i < bytes.length) {
+                    chunk.lineCount++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        return chunk;
+    }
+
+    private static Task decode(byte[] bytes, int start, int end) {
+        return Storage.tryDecode(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a line written as "crc ~ task", where
+     * crc is the CRC32C of the task part in hex.
+     *
+     * @return the task, or null if the line is damaged.
+     */
+    private static Task decodeChecked(byte[] bytes, int start, int end, CRC32C crc) {
+        int body = start + Storage.CHECKSUM_PREFIX;
+        if (end <= body || bytes[body - 3] != ' ' || bytes[body - 2] != '~'
+                || bytes[body - 1] != ' ') {
+            return null;
+        }
+        long expected;
+        try {
+            expected = Long.parseLong(new String(bytes, start, 8, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        crc.reset();
+        crc.update(bytes, body, end - body);
+        return crc.getValue() == expected ? decode(bytes, body, end) : null;
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The tasks decoded from one range, and
+     * the lines in it that could not be.
+     */
+    private static class Chunk {
+
+        private ArrayList<Task> tasks;
+        private List<Long> badLineNumbers = new ArrayList<>();
+        private List<String> badLines = new ArrayList<>();
+        private long lineCount;
+
+        Chunk(int expectedTasks) {
+            this.tasks = new ArrayList<>(expectedTasks);
+        }
+    }
+
+}
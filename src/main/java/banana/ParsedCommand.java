@@ -0,0 +1,77 @@
+package banana;
+
+/**
+ * The ParsedCommand class is one line of user
+ * input split into its command and the text
+ * after it, found in a single pass over the
+ * leading keyword.
+ */
+class ParsedCommand {
+
+    private final String input;
+    private final Parser.Command command;
+    private final String argument;
+
+    /**
+     * Constructor for ParsedCommand.
+     *
+     * @param input    the user input.
+     * @param command  the command to run.
+     * @param argument the text after the keyword and one space.
+     */
+    ParsedCommand(String input, Parser.Command command, String argument) {
+        this.input = input;
+        this.command = command;
+        this.argument = argument;
+    }
+
+    /**
+     * Gets the whole user input.
+     *
+     * @return the input.
+     */
+    String getInput() {
+        return input;
+    }
+
+    /**
+     * Gets the command to run.
+     *
+     * @return the command.
+     */
+    Parser.Command getCommand() {
+        return command;
+    }
+
+    /**
+     * Gets the text after the keyword and
+     * the space following it.
+     *
+     * @return the argument, or an empty string if there is none.
+     */
+    String getArgument() {
+        return argument;
+    }
+
+    /**
+     * Checks if the command only reads the
+     * list, so it can run alongside others.
+     *
+     * @return whether the command leaves the list unchanged.
+     */
+    boolean isReadOnly() {
+        return command.isReadOnly();
+    }
+
+    /**
+     * Checks if the response only depends on
+     * the tasks, so it can be given again
+     * while the list is unchanged.
+     *
+     * @return whether the response can be cached.
+     */
+    boolean isCacheable() {
+        return command.isReadOnly() && !command.getKeyword().equals("export");
+    }
+
+}
@@ -1,170 +1,262 @@
 package banana;
 
+import java.io.File;
+import java.io.IOException;
+
+import java.time.LocalDate;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * The Parser class makes sense
  * of the user's input.
  *
+ * The first word of the input is looked up in a
+ * table of commands, each with the method that
+ * handles it, and the handler reads the rest of
+ * the input itself. Input starting with no known
+ * command is added as a task. A Parser keeps no
+ * state between inputs, so one can serve every
+ * input and every session.
+ *
  * @author: Ravi Ananya
  **/
 public class Parser {
 
-    private static String prevInput;
-    private String input;
-    private static Task deletedTask;
+    private static final String EMPTY_DESCRIPTION = " OOPS!!! The description of"
+            + "\n a task cannot be empty.";
+    private static final String WRONG_FORMAT = " OOPS!!! You need to use"
+            + "\n the correct format :-(";
+    private static final String NO_FILE = " OOPS!!! You need to give a file"
+            + "\n to import from or export to.";
+
+    private final Map<String, Command> commands = new HashMap<>();
+    private final Command addTask = new Command("", false, null, argument -> true,
+            this::addTaskCommand);
 
     /**
      * Constructor for the Parser class.
-     *
-     * @param input the user input.
+     * Builds the table of commands.
+     */
+    public Parser() {
+        add("", false, EMPTY_DESCRIPTION, this::addTaskCommand);
+        add("todo", false, EMPTY_DESCRIPTION, this::todoCommand);
+        add("deadline", false, EMPTY_DESCRIPTION, (command, tasks, session) ->
+                datedTaskCommand(command, tasks, " /by ", "deadline"));
+        add("event", false, EMPTY_DESCRIPTION, (command, tasks, session) ->
+                datedTaskCommand(command, tasks, " /at ", "event"));
+        add("done", false, " OOPS!!! The completed task"
+                + "\n number must be given.", this::doneCommand);
+        add("delete", false, " OOPS!!! You need to specify which"
+                + "\n task you want to delete.", this::deleteCommand);
+        add("blah", false, " OOPS!!! I'm sorry, but I don't know"
+                + "\n what that means :-(", this::addTaskCommand);
+        add("find", true, null, this::findCommand);
+        add("import", false, NO_FILE, this::importCommand);
+        add("export", true, NO_FILE, this::exportCommand);
+        addChecked("due", true, ParserFunctions::isDateArgument, this::dueCommand);
+        addChecked("on", true, ParserFunctions::isDateArgument, this::onCommand);
+        addChecked("between", true, ParserFunctions::isDateRangeArgument, this::betweenCommand);
+        addChecked("list", true, ParserFunctions::isListArgument, this::listCommand);
+        addChecked("undo", false, Parser::isRepeatCount, this::undoCommand);
+        addChecked("redo", false, Parser::isRepeatCount, this::redoCommand);
+    }
+
+    private void add(String keyword, boolean isReadOnly, String missingText, Handler handler) {
+        commands.put(keyword, new Command(keyword, isReadOnly, missingText,
+                argument -> true, handler));
+    }
+
+    /**
+     * Adds a command that only takes some arguments.
+     * Input it does not take is added as a task.
      */
-    public Parser(String input) {
-        this.input = input;
+    private void addChecked(String keyword, boolean isReadOnly, Predicate<String> accepts,
+                            Handler handler) {
+        commands.put(keyword, new Command(keyword, isReadOnly, null, accepts, handler));
     }
 
     /**
-     * Sets the previous input to be
-     * handled in case of the user input
-     * being "undo".
+     * Splits the input into its command and
+     * the text after it, without running it.
      *
-     * @param prevInput the user's previous input.
+     * @param input the user input.
+     * @return the parsed command.
      */
-    public static void setPrevInput(String prevInput) {
-        Parser.prevInput = prevInput;
+    ParsedCommand parse(String input) {
+        int space = input.indexOf(' ');
+        String keyword = space < 0 ? input : input.substring(0, space);
+        String argument = space < 0 ? "" : input.substring(space + 1);
+        Command command = commands.get(keyword);
+        if (command == null || !command.accepts.test(argument)) {
+            command = addTask;
+        }
+        return new ParsedCommand(input, command, argument);
     }
 
     /**
      * Checks how to handle the user's
-     * input command.
+     * input command, and runs it.
      *
-     * @param tasks the list of tasks.
+     * @param input   the user input.
+     * @param tasks   the list of tasks.
+     * @param session the session the input came from.
      * @return the correct output.
      * @throws DukeException if the input was invalid.
      */
-    public String parseInput(TaskList tasks) throws DukeException {
-        exceptionCommand(tasks);
-        if (input.equals("undo")) {
-            return undoCommand(tasks);
-        } else if (input.equals("list")) {
-            return listCommand(tasks);
-        } else if (input.contains("done")) {
-            return doneCommand(tasks);
-        } else if (input.contains("delete")) {
-            return deleteCommand(tasks);
-        } else if (input.contains("find")) {
-            return findCommand(tasks);
-        } else if (input.contains("deadline") || input.contains("event")) {
-            return deadlineOrEventCommand(tasks);
-        } else {
-            return addTaskCommand(tasks);
-        }
+    public String parseInput(String input, TaskList tasks, Session session)
+            throws DukeException {
+        return execute(parse(input), tasks, session);
     }
 
     /**
-     * Undoes the previous command's
-     * action.
+     * Runs a parsed command.
      *
-     * @param tasks the list of tasks.
+     * @param parsed  the parsed command.
+     * @param tasks   the list of tasks.
+     * @param session the session the input came from.
      * @return the correct output.
+     * @throws DukeException if the input was invalid.
      */
-    public String undoCommand(TaskList tasks) {
-        String undoText = "";
-        if (prevInput == null) {
-            undoText = " You have not inputted anything"
-                    + "to undo yet.";
-        } else if (prevInput.contains("done")) {
-            int index = Integer.parseInt(prevInput.substring(5));
-            tasks.getTask(index - 1).setIsDone(false);
-            undoText = " Undid done on task " + index;
-        } else if (prevInput.contains("delete")) {
-            int index = Integer.parseInt(prevInput.substring(7));
-            TaskList latterTasks = tasks.subList(index - 1, tasks.getSize());
-            tasks.removeTasks(latterTasks);
-            tasks.addTask(deletedTask);
-            tasks.addTasks(latterTasks);
-            undoText = " Undid delete on task " + index;
-        } else if (!prevInput.contains("find")
-                && !prevInput.equals("list")) {
-            Task temp = tasks.getTask(tasks.getSize() - 1);
-            tasks.removeTask(temp);
-            undoText = " Removed task " + temp.getDescription();
-        } else {
-            undoText = " This command does not change the tasklist,"
-                    + "so there is nothing to undo.";
+    String execute(ParsedCommand parsed, TaskList tasks, Session session)
+            throws DukeException {
+        Command command = parsed.getCommand();
+        if (command.missingText != null && parsed.getArgument().isEmpty()) {
+            throw new DukeException(command.missingText);
+        }
+        return command.handler.handle(parsed, tasks, session);
+    }
+
+    private static boolean isRepeatCount(String argument) {
+        if (argument.isEmpty()) {
+            return true;
+        } else if (argument.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < argument.length(); i++) {
+            if (argument.charAt(i) < '0' || argument.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return Integer.parseInt(argument) >= 1;
+    }
+
+    private static int getRepeatCount(ParsedCommand command) {
+        return command.getArgument().isEmpty() ? 1 : Integer.parseInt(command.getArgument());
+    }
+
+    /**
+     * Undoes the previous command's action,
+     * or as many commands as the number after
+     * undo says.
+     */
+    private String undoCommand(ParsedCommand command, TaskList tasks, Session session) {
+        String undoText = session.getHistory().undo(tasks, getRepeatCount(command));
+        if (undoText.isEmpty()) {
+            undoText = " There is nothing left to undo.";
         }
         return undoText;
     }
 
+    /**
+     * Redoes the last undone command, or as
+     * many as the number after redo says.
+     */
+    private String redoCommand(ParsedCommand command, TaskList tasks, Session session) {
+        String redoText = session.getHistory().redo(tasks, getRepeatCount(command));
+        if (redoText.isEmpty()) {
+            redoText = " There is nothing to redo.";
+        }
+        return redoText;
+    }
+
     /**
      * Gets and prints the existing
-     * list of tasks.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
+     * list of tasks, or one range or
+     * page of it.
      */
-    public String listCommand(TaskList tasks) {
-        String itemCollection = ParserFunctions.getItems(tasks);
-        String listText = " Here are the tasks in your list: \n"
-                + "     ";
-        return listText + itemCollection;
+    private String listCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        String spec = command.getArgument();
+        if (tasks.getSize() == 0 && spec.isEmpty()) {
+            return " Here are the tasks in your list: \n" + "     ";
+        }
+        int[] range = ParserFunctions.parseListRange(spec, tasks.getSize());
+        StringBuilder listText = new StringBuilder(96);
+        if (spec.isEmpty()) {
+            listText.append(" Here are the tasks in your list: \n");
+        } else {
+            listText.append(" Here are tasks ").append(range[0] + 1).append('-')
+                    .append(range[1]).append(" of ").append(tasks.getSize())
+                    .append(" in your list: \n");
+        }
+        listText.append("     ");
+        ParserFunctions.appendItems(listText, tasks, range[0], range[1]);
+        if (range[1] < tasks.getSize()) {
+            listText.append("\n ").append(tasks.getSize() - range[1])
+                    .append(" more tasks. Use list ").append(range[1] + 1).append('-')
+                    .append(Math.min(range[1] + ParserFunctions.PAGE_SIZE, tasks.getSize()))
+                    .append(" to see more.");
+        }
+        return listText.toString();
     }
 
     /**
-     * Indicates a task as done.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
+     * Indicates a task, or several such as
+     * 1,4,7-250, as done.
      */
-    public String doneCommand(TaskList tasks) {
-        int index = Integer.parseInt(input.substring(5, 6)) - 1;
-        tasks.getTask(index).setIsDone(true);
+    private String doneCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        int[] indices = ParserFunctions.parseIndices(command.getArgument(), tasks.getSize());
+        for (int i : indices) {
+            tasks.setDone(i, true);
+        }
+        if (indices.length > 1) {
+            return " Nice! I've marked " + indices.length + " tasks as done.";
+        }
+        int index = indices[0];
         String doneText = " Nice! I've marked this task as done: \n"
                 + "       ";
         return doneText + tasks.getTask(index).toString();
     }
 
     /**
-     * Adds a task or the subclass ToDo.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
+     * Adds the whole input as a task.
      */
-    public String addTaskCommand(TaskList tasks) {
-        if (input.contains("todo")) {
-            String info = input.substring(5);
-            tasks.addTask(new ToDo(info));
-        } else {
-            tasks.addTask(new Task(input));
-        }
-        String addTaskText = " Got it. I've added this task:  \n"
-                + "       ";
-        String taskNumberText = "\n"
-                + " Now you have " + Integer.toString(tasks.getSize())
-                + " tasks in the list.";
-        return addTaskText + tasks.getTask(
-                tasks.getSize() - 1).toString() + taskNumberText;
+    private String addTaskCommand(ParsedCommand command, TaskList tasks, Session session) {
+        tasks.addTask(new Task(command.getInput()));
+        return addedText(tasks);
+    }
+
+    /**
+     * Adds a ToDo.
+     */
+    private String todoCommand(ParsedCommand command, TaskList tasks, Session session) {
+        tasks.addTask(new ToDo(command.getArgument()));
+        return addedText(tasks);
     }
 
     /**
      * Adds an Event or a Deadline and
      * gets the time/date in correct format
      * if necessary.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
      */
-    public String deadlineOrEventCommand(TaskList tasks) {
-        assert input.contains("deadline") || input.contains("event");
-        if (input.contains("deadline")) {
-            String[] info = input.substring(9).split(" /by ");
-            tasks.addTask(ParserFunctions.getDateAndTime(
-                    info, "deadline"));
-        } else {
-            String[] info = input.substring(6).split(" /at ");
-            tasks.addTask(ParserFunctions.getDateAndTime(
-                    info, "event"));
+    private String datedTaskCommand(ParsedCommand command, TaskList tasks, String separator,
+                                    String type) throws DukeException {
+        String argument = command.getArgument();
+        int split = argument.indexOf(separator);
+        if (split < 0) {
+            throw new DukeException(WRONG_FORMAT);
         }
+        tasks.addTask(ParserFunctions.getDateAndTime(argument.substring(0, split),
+                argument.substring(split + separator.length()), type));
+        return addedText(tasks);
+    }
+
+    private static String addedText(TaskList tasks) {
         String addTaskText = " Got it. I've added this task:  \n"
                 + "       ";
         String taskNumberText = "\n"
@@ -175,49 +267,113 @@ public class Parser {
     }
 
     /**
-     * Throws an exception if the wrong
-     * commands/inputs have been entered.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
-     * @throws DukeException the exception.
+     * Adds every task in a CSV or JSON file.
+     */
+    private String importCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        File file = new File(command.getArgument().trim());
+        try {
+            int[] counts = TaskTransfer.importFrom(file, tasks);
+            String skippedText = counts[1] == 0 ? ""
+                    : "\n Skipped " + counts[1] + " rows that could not be read.";
+            return " Imported " + counts[0] + " tasks from " + file.getName() + "."
+                    + skippedText + "\n Now you have " + tasks.getSize()
+                    + " tasks in the list.";
+        } catch (IOException e) {
+            throw new DukeException(" OOPS!!! I could not read " + file.getName());
+        }
+    }
+
+    /**
+     * Writes every task to a CSV or JSON file.
+     */
+    private String exportCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        File file = new File(command.getArgument().trim());
+        try {
+            int count = TaskTransfer.exportTo(file, tasks);
+            return " Exported " + count + " tasks to " + file.getName() + ".";
+        } catch (IOException e) {
+            throw new DukeException(" OOPS!!! I could not write " + file.getName());
+        }
+    }
+
+    /**
+     * Lists the unfinished deadlines and
+     * events due by a date.
      */
-    public void exceptionCommand(TaskList tasks) throws DukeException {
-        if (input.equals("todo") || input.equals("event")
-                || input.equals("deadline") || input.equals("")) {
-            throw new DukeException(" OOPS!!! The description of"
-                    + "\n a task cannot be empty.");
-        } else if (input.equals("done")) {
-            throw new DukeException(" OOPS!!! The completed task"
-                    + "\n number must be given.");
-        } else if (input.equals("delete")) {
-            throw new DukeException(" OOPS!!! You need to specify which"
-                    + "\n task you want to delete.");
-        } else if (input.equals("blah")) {
-            throw new DukeException(" OOPS!!! I'm sorry, but I don't know"
-                    + "\n what that means :-(");
-        } else if (input.contains("delete") || input.contains("done")) {
-            if (ParserFunctions.isOutOfBounds(input, tasks.getSize())) {
-                throw new DukeException(" OOPS!!! Your index"
-                        + "\n is invalid :-(");
+    private String dueCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        String argument = command.getArgument();
+        int page = ParserFunctions.findPage(argument);
+        LocalDate date = ParserFunctions.parseQueryDate(argument.substring(0, page));
+        TaskList dated = tasks.findDated(null, date);
+        TaskList due = new TaskList(new ArrayList<>());
+        for (int i = 0; i < dated.getSize(); i++) {
+            if (dated.getTask(i).getIsDone().equals("[ ]")) {
+                due.addTask(dated.getTask(i));
             }
-        } else if (input.contains("deadline") && !input.contains("/by ")
-                  || input.contains("event") && !input.contains("/at ")) {
-            throw new DukeException(" OOPS!!! You need to use"
-                    + "\n the correct format :-(");
         }
+        return datedText(tasks, due, "due by " + ParserFunctions.formatDate(date),
+                argument.substring(page));
     }
 
     /**
-     * Delete a task from the list.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
+     * Lists the deadlines and events on a date.
      */
-    public String deleteCommand(TaskList tasks) {
-        int index = Integer.parseInt(input.substring(7, 8)) - 1;
-        deletedTask = tasks.getTask(index);
-        tasks.removeTask(deletedTask);
+    private String onCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        String argument = command.getArgument();
+        int page = ParserFunctions.findPage(argument);
+        LocalDate date = ParserFunctions.parseQueryDate(argument.substring(0, page));
+        return datedText(tasks, tasks.findDated(date, date),
+                "on " + ParserFunctions.formatDate(date), argument.substring(page));
+    }
+
+    /**
+     * Lists the deadlines and events between
+     * two dates, both included.
+     */
+    private String betweenCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        String argument = command.getArgument();
+        int page = ParserFunctions.findPage(argument);
+        LocalDate[] range = ParserFunctions.parseDateRange(argument.substring(0, page));
+        LocalDate from = range[0];
+        LocalDate to = range[1];
+        return datedText(tasks, tasks.findDated(from, to), "between "
+                + ParserFunctions.formatDate(from) + " and " + ParserFunctions.formatDate(to),
+                argument.substring(page));
+    }
+
+    private String datedText(TaskList tasks, TaskList found, String when, String page)
+            throws DukeException {
+        String outputText = found.getSize() == 0
+                ? " Nothing is " + when + "."
+                : ParserFunctions.getLimitedItems(" Here are the tasks " + when
+                        + ": \n" + "     ", found, page);
+        int undated = tasks.countUndated();
+        if (undated > 0) {
+            outputText += "\n " + undated + (undated == 1 ? " task has" : " tasks have")
+                    + " a date I cannot read, so I left "
+                    + (undated == 1 ? "it" : "them") + " out.";
+        }
+        return outputText;
+    }
+
+    /**
+     * Delete a task, or several such as
+     * 10-5000, from the list.
+     */
+    private String deleteCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        int[] indices = ParserFunctions.parseIndices(command.getArgument(), tasks.getSize());
+        if (indices.length > 1) {
+            tasks.removeTasksAt(indices);
+            return " Noted. I've removed " + indices.length + " tasks.\n"
+                    + " Now you have " + tasks.getSize() + " tasks in the list.";
+        }
+        Task deletedTask = tasks.removeTaskAt(indices[0]);
         String removeTaskText = " Noted. I've removed this task:  \n"
                 + "       ";
         String taskNumberText = "\n"
@@ -228,32 +384,69 @@ public class Parser {
     }
 
     /**
-     * Finds the task that contains
-     * or matches the user's input.
-     *
-     * @param tasks the list of tasks.
-     * @return the correct output.
+     * Finds the tasks with words starting
+     * with every word the user searched for,
+     * a page at a time if asked, e.g. --page 3.
      */
-    public String findCommand(TaskList tasks) {
-        String outputText = " No matching tasks, sorry";
-        TaskList newTasks = new TaskList(new ArrayList<>());
-        if (input.contains("find")) {
-            String[] items = input.split(" ");
-            if (items.length > 1) {
-                for (int i = 0; i < tasks.getSize(); i++) {
-                    if (tasks.getTask(i).getDescription().contains(items[1])) {
-                        newTasks.addTask(tasks.getTask(i));
-                    }
-                }
-            }
-            if (newTasks.getSize() > 0) {
-                outputText = " Here are the matching tasks "
-                        + "in your list: \n" + "     ";
-                return outputText + ParserFunctions.getItems(newTasks);
-            }
+    private String findCommand(ParsedCommand command, TaskList tasks, Session session)
+            throws DukeException {
+        String argument = command.getArgument();
+        int page = ParserFunctions.findPage(argument);
+        TaskList newTasks = tasks.find(argument.substring(0, page));
+        if (newTasks.getSize() > 0) {
+            return ParserFunctions.getLimitedItems(" Here are the matching tasks "
+                    + "in your list: \n" + "     ", newTasks, argument.substring(page));
         }
-        return outputText;
+        return " No matching tasks, sorry";
     }
 
+    /**
+     * One command in the table.
+     */
+    static final class Command {
+
+        private final String keyword;
+        private final boolean isReadOnly;
+        private final String missingText;
+        private final Predicate<String> accepts;
+        private final Handler handler;
+
+        /**
+         * Constructor for Command.
+         *
+         * @param keyword     the first word of the input.
+         * @param isReadOnly  whether the command leaves the list unchanged.
+         * @param missingText the error when nothing follows the
+         *                    keyword, or null if that is allowed.
+         * @param accepts     whether the text after the keyword fits the
+         *                    command; if not, the input is added as a task.
+         * @param handler     what runs the command.
+         */
+        Command(String keyword, boolean isReadOnly, String missingText,
+                Predicate<String> accepts, Handler handler) {
+            this.keyword = keyword;
+            this.isReadOnly = isReadOnly;
+            this.missingText = missingText;
+            this.accepts = accepts;
+            this.handler = handler;
+        }
+
+        String getKeyword() {
+            return keyword;
+        }
+
+        boolean isReadOnly() {
+            return isReadOnly;
+        }
+    }
+
+    /**
+     * Runs one kind of command.
+     */
+    @FunctionalInterface
+    interface Handler {
+        String handle(ParsedCommand command, TaskList tasks, Session session)
+                throws DukeException;
+    }
 
 }
@@ -2,6 +2,8 @@ package banana;
 
 import java.time.LocalDate;
 
+import java.util.BitSet;
+
 /**
  * The Parser Functions class
  * consists of additional
@@ -12,6 +14,14 @@ import java.time.LocalDate;
  */
 public class ParserFunctions {
 
+    /** The number of tasks on each page of list --page. */
+    public static final int PAGE_SIZE = 100;
+
+    /** The most tasks shown at once when no page is asked for. */
+    public static final int LIST_LIMIT = 1000;
+
+    private static final int CHARS_PER_ITEM = 48;
+
     /**
      * Gets the list of tasks.
      *
@@ -19,108 +29,303 @@ public class ParserFunctions {
      * @return the tasks in string format.
      */
     public static String getItems(TaskList tasks) {
-        String collection = "";
-        for (int index = 0; index < tasks.getSize(); index++) {
-            if (index != 0) {
-                collection += "     ";
-            }
-            String info = tasks.getTask(index).toString();
-            collection += Integer.toString(index + 1) + "." + info;
-            if (index != tasks.getSize() - 1) {
-                collection += "\n";
+        StringBuilder collection = new StringBuilder(tasks.getSize() * CHARS_PER_ITEM);
+        appendItems(collection, tasks, 0, tasks.getSize());
+        return collection.toString();
+    }
+
+    /**
+     * Writes some of the tasks, one per line and
+     * numbered by their position in the list.
+     *
+     * @param out   where to write the tasks.
+     * @param tasks the list of tasks.
+     * @param start the position of the first task, from 0.
+     * @param end   the position after the last task.
+     */
+    public static void appendItems(StringBuilder out, TaskList tasks, int start, int end) {
+        out.ensureCapacity(out.length() + (end - start) * CHARS_PER_ITEM);
+        for (int index = start; index < end; index++) {
+            if (index != start) {
+                out.append("\n     ");
             }
+            out.append(index + 1).append('.').append(tasks.getTask(index));
+        }
+    }
+
+    /**
+     * Writes a heading and the tasks under it:
+     * the first LIST_LIMIT tasks, or a page of
+     * them if the spec asks for one such as
+     * --page 3, with a note saying how to see
+     * the tasks after them.
+     *
+     * @param heading the text before the tasks.
+     * @param tasks   the tasks to show.
+     * @param spec    the page asked for, or an empty string.
+     * @return the heading and the tasks.
+     * @throws DukeException if the page is invalid.
+     */
+    public static String getLimitedItems(String heading, TaskList tasks, String spec)
+            throws DukeException {
+        int[] range = parsePage(spec, tasks.getSize());
+        StringBuilder out = new StringBuilder(heading.length() + 96);
+        out.append(heading);
+        appendItems(out, tasks, range[0], range[1]);
+        if (range[1] < tasks.getSize()) {
+            out.append("\n ...and ").append(tasks.getSize() - range[1])
+                    .append(" more, add --page ").append(range[1] / PAGE_SIZE + 1)
+                    .append(" to see them.");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Finds where a page such as --page 3 starts
+     * at the end of the text after find or a
+     * date query.
+     *
+     * @param argument the text after the keyword.
+     * @return the position of --page, or the length of
+     *         the text if no page is asked for.
+     */
+    public static int findPage(String argument) {
+        int index = argument.lastIndexOf("--page");
+        return index == 0 || index > 0 && argument.charAt(index - 1) == ' '
+                ? index : argument.length();
+    }
+
+    private static int[] parsePage(String spec, int size) throws DukeException {
+        TextCursor cursor = new TextCursor(spec);
+        if (cursor.isAtEnd()) {
+            return new int[] {0, Math.min(size, LIST_LIMIT)};
+        }
+        cursor.skip("--page");
+        long page = cursor.readNumber();
+        if (page < 1 || !cursor.isAtEnd()) {
+            throw new DukeException(" OOPS!!! You need to give a page"
+                    + "\n number, e.g. --page 3 :-(");
+        }
+        long start = (page - 1) * PAGE_SIZE;
+        if (start >= size) {
+            throw new DukeException(" OOPS!!! There are only " + ((size - 1) / PAGE_SIZE + 1)
+                    + "\n pages of tasks :-(");
+        }
+        return new int[] {(int) start, (int) Math.min(start + PAGE_SIZE, size)};
+    }
+
+    /**
+     * Checks if the text after "list" asks for
+     * part of the list, rather than being the
+     * description of a task that starts with list.
+     *
+     * @param argument the text after "list ".
+     * @return whether it is a range or page.
+     */
+    public static boolean isListArgument(String argument) {
+        return argument.isEmpty() || argument.startsWith("--page")
+                || argument.charAt(0) >= '0' && argument.charAt(0) <= '9';
+    }
+
+    /**
+     * Works out which tasks a list command
+     * shows: a range such as 200-300, a page
+     * such as --page 3, or the first LIST_LIMIT
+     * tasks when nothing is given.
+     *
+     * @param spec the text after "list".
+     * @param size the number of tasks.
+     * @return the first position and the position after
+     *         the last, both from 0.
+     * @throws DukeException if the range or page is invalid.
+     */
+    public static int[] parseListRange(String spec, int size) throws DukeException {
+        TextCursor cursor = new TextCursor(spec);
+        if (cursor.isAtEnd()) {
+            return new int[] {0, Math.min(size, LIST_LIMIT)};
+        }
+        long start;
+        long end;
+        if (cursor.skip("--page")) {
+            long page = cursor.readNumber();
+            start = (page - 1) * PAGE_SIZE + 1;
+            end = page * PAGE_SIZE;
+        } else {
+            start = cursor.readNumber();
+            end = cursor.skip('-') ? cursor.readNumber() : start;
+        }
+        if (start < 0 || end < 0 || !cursor.isAtEnd()) {
+            throw new DukeException(" OOPS!!! You need to use"
+                    + "\n list 200-300 or list --page 3 :-(");
+        }
+        if (start > end) {
+            long temp = start;
+            start = end;
+            end = temp;
+        }
+        if (start < 1 || start > size) {
+            throw new DukeException(" OOPS!!! There are only " + size
+                    + "\n tasks in the list :-(");
         }
-        return collection;
+        return new int[] {(int) start - 1, (int) Math.min(end, size)};
     }
 
     /**
-     * Gets the date and time in correct
-     * notation/format if necessary.
+     * Makes a deadline or event, reading the
+     * date and time in its detail if there are
+     * any, e.g. "2/12/2019 1800" becomes
+     * Dec 2 2019 6pm. Anything else is kept
+     * as free text.
      *
-     * @param info the task information.
-     * @param type the Task type.
+     * @param description the task description.
+     * @param detail      the date, day and/or time.
+     * @param type        "deadline" or "event".
      * @return the new Task.
      */
-    public static Task getDateAndTime(String[] info, String type) {
-        String[] potentialDate = info[1].split(" ");
-        LocalDate date = null;
-        if (!getTime(potentialDate[0]).equals("")) {
-            info[1] = getTime(potentialDate[0]);
-        } else if (potentialDate.length > 1 &&
-                !getTime(potentialDate[1]).equals("")) {
-            potentialDate[1] = getTime(potentialDate[1]);
-            info[1] = potentialDate[0] + " " + potentialDate[1];
-        }
-        if (potentialDate.length > 1 && potentialDate[0].contains("/")) {
-            date = LocalDate.parse(parseDates(potentialDate[0]));
+    public static Task getDateAndTime(String description, String detail, String type) {
+        int space = detail.indexOf(' ');
+        String first = space < 0 ? detail : detail.substring(0, space);
+        String second = null;
+        if (space >= 0 && !detail.substring(space + 1).isBlank()) {
+            int secondEnd = detail.indexOf(' ', space + 1);
+            second = detail.substring(space + 1, secondEnd < 0 ? detail.length() : secondEnd);
         }
+        String time = DateTimeParser.parseTime(first);
+        String secondTime = time != null || second == null ? null : DateTimeParser.parseTime(second);
+        if (time != null) {
+            detail = time;
+        } else if (secondTime != null) {
+            second = secondTime;
+            detail = first + " " + second;
+        }
+        LocalDate date = second == null ? null : DateTimeParser.parseDate(first);
         if (type.equals("deadline")) {
-            if (date != null) {
-                return new Deadline(info[0], date, potentialDate[1]);
-            } else {
-                return new Deadline(info[0], info[1]);
-            }
+            return date == null ? new Deadline(description, detail)
+                    : new Deadline(description, date, second);
         } else {
-            if (date != null) {
-                return new Event(info[0], date, potentialDate[1]);
-            } else {
-                return new Event(info[0], info[1]);
-            }
+            return date == null ? new Event(description, detail)
+                    : new Event(description, date, second);
         }
     }
 
     /**
-     * Changes the date format to be
-     * parsed by LocalDate.
+     * Reads a date given to a date query, written
+     * either like the deadline command takes it,
+     * e.g. 2/12/2019, or as 2019-12-02.
      *
-     * @param date the old-format date.
-     * @return the new-format date.
+     * @param text the date.
+     * @return the date.
+     * @throws DukeException if the date cannot be read.
      */
-    public static String parseDates(String date) {
-        String[] sepIntoYearMonthDate = date.split("/");
-        assert sepIntoYearMonthDate.length == 3;
-        if (Integer.parseInt(sepIntoYearMonthDate[0]) < 10) {
-            sepIntoYearMonthDate[0] = "0" + sepIntoYearMonthDate[0];
+    public static LocalDate parseQueryDate(String text) throws DukeException {
+        LocalDate parsed = readQueryDate(text);
+        if (parsed == null) {
+            throw new DukeException(" OOPS!!! I could not read the date " + text.trim()
+                    + ",\n please write it like 2/12/2019 or 2019-12-02.");
         }
-        return sepIntoYearMonthDate[2] + "-" +
-                sepIntoYearMonthDate[1] + "-" + sepIntoYearMonthDate[0];
+        return parsed;
     }
 
     /**
-     * Changes the time format.
+     * Reads the two dates given to between,
+     * e.g. 1/12/2019 and 31/12/2019, with
+     * the "and" left out if wished.
      *
-     * @param time the old-format time.
-     * @return the new-format time.
+     * @param text the dates.
+     * @return the earlier date and then the later one.
+     * @throws DukeException if there are not two dates.
      */
-    public static String getTime(String time) {
-        try {
-            int timeVal = Integer.parseInt(time) / 100;
-            if (timeVal > 12) {
-                timeVal -= 12;
-            }
-            return Integer.toString(timeVal) + "pm";
-        } catch (NumberFormatException e) {
-            return "";
+    public static LocalDate[] parseDateRange(String text) throws DukeException {
+        LocalDate[] range = readDateRange(text);
+        if (range == null) {
+            throw new DukeException(" OOPS!!! You need to give two dates,"
+                    + "\n e.g. between 1/12/2019 and 31/12/2019.");
+        }
+        return range;
+    }
+
+    /**
+     * Checks if the text after due or on is a
+     * date, with or without a page, rather than the rest of a task's
+     * description, e.g. "on holiday".
+     *
+     * @param argument the text after the keyword.
+     * @return whether it is a date.
+     */
+    public static boolean isDateArgument(String argument) {
+        return readQueryDate(argument.substring(0, findPage(argument))) != null;
+    }
+
+    /**
+     * Checks if the text after between is two
+     * dates, with or without a page, rather than the rest of a task's
+     * description, e.g. "between friends".
+     *
+     * @param argument the text after the keyword.
+     * @return whether it is two dates.
+     */
+    public static boolean isDateRangeArgument(String argument) {
+        return readDateRange(argument.substring(0, findPage(argument))) != null;
+    }
+
+    private static LocalDate readQueryDate(String text) {
+        String date = text.trim();
+        return date.contains("/") ? DateTimeParser.parseDate(date)
+                : DateTimeParser.parseIsoDate(date);
+    }
+
+    private static LocalDate[] readDateRange(String text) {
+        TextCursor cursor = new TextCursor(text);
+        LocalDate from = readQueryDate(cursor.readWord());
+        String second = cursor.readWord();
+        if (second.equals("and")) {
+            second = cursor.readWord();
         }
+        LocalDate to = readQueryDate(second);
+        if (from == null || to == null || !cursor.isAtEnd()) {
+            return null;
+        }
+        return from.isAfter(to) ? new LocalDate[] {to, from} : new LocalDate[] {from, to};
+    }
+
+    /**
+     * Formats a date the way tasks show it.
+     *
+     * @param date the date.
+     * @return the date, e.g. Dec 2 2019.
+     */
+    public static String formatDate(LocalDate date) {
+        return DateTimeParser.formatDate(date);
     }
 
     /**
-     * Checks if index is in bounds
+     * Reads task numbers separated by commas,
+     * each a single number or a range such as
+     * 7-250, e.g. 1,4,7-250. Every number is
+     * checked before any is used.
      *
-     * @param input the user input
-     * @param size  the number of list items
-     * @return whether index is out of bounds
+     * @param spec the task numbers.
+     * @param size the number of list items.
+     * @return the positions, from 0, in increasing
+     *         order and without repeats.
+     * @throws DukeException if a number is missing or out of bounds.
      */
-    public static boolean isOutOfBounds(String input, int size) {
-        String[] splitInput = input.split(" ");
-        if (splitInput.length == 2) {
-            int index = Integer.parseInt(splitInput[1]);
-            if (index < 1 || index > size) {
-                return true;
+    public static int[] parseIndices(String spec, int size) throws DukeException {
+        BitSet chosen = new BitSet(size);
+        TextCursor cursor = new TextCursor(spec);
+        do {
+            int first = cursor.readNumber();
+            int last = cursor.skip('-') ? cursor.readNumber() : first;
+            if (first < 1 || last > size || first > last) {
+                throw new DukeException(" OOPS!!! Your index"
+                        + "\n is invalid :-(");
             }
-        } else if (splitInput.length == 1) {
-            return true;
+            chosen.set(first - 1, last);
+        } while (cursor.skip(','));
+        if (!cursor.isAtEnd()) {
+            throw new DukeException(" OOPS!!! Your index"
+                    + "\n is invalid :-(");
         }
-        return false;
+        return chosen.stream().toArray();
     }
 }
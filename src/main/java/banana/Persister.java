@@ -0,0 +1,240 @@
+package banana;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Persister class writes captured changes
+ * on a background thread, so commands return
+ * without waiting for the disk. Changes queue
+ * up in a bounded queue, which keeps them in
+ * order and slows callers down if the disk
+ * falls too far behind. Bursts of changes are
+ * written together as one group.
+ */
+class Persister {
+
+    /**
+     * When queued changes are written out.
+     */
+    enum Policy {
+        EVERY_COMMAND, INTERVAL, ON_EXIT
+    }
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long CHECK_MILLIS = 100;
+
+    private final TaskFile taskFile;
+    private final Policy policy;
+    private final long intervalMillis;
+    private final boolean isForced;
+    private final BlockingQueue<Object> queue;
+    private final Thread worker;
+    private final List<TaskFile.Write> held;
+    private volatile IOException failure;
+    private volatile boolean isClosed;
+
+    /**
+     * Constructor for Persister. Starts the
+     * background thread straight away.
+     *
+     * @param taskFile       the format to write with.
+     * @param policy         when to write.
+     * @param intervalMillis the wait between writes for INTERVAL.
+     * @param isForced       whether to fsync every write.
+     */
+    public Persister(TaskFile taskFile, Policy policy, long intervalMillis,
+                     boolean isForced) {
+        this.taskFile = taskFile;
+        this.policy = policy;
+        this.intervalMillis = intervalMillis;
+        this.isForced = isForced;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.held = new ArrayList<>();
+        this.worker = new Thread(this::run, "banana-persister");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Builds a Persister from the banana.persist
+     * and banana.fsync system properties.
+     * banana.persist is "every-command" (the default),
+     * "on-exit" or an interval such as "500ms".
+     *
+     * @param taskFile the format to write with.
+     * @return the Persister.
+     */
+    static Persister fromProperties(TaskFile taskFile) {
+        String name = System.getProperty("banana.persist", "every-command").trim();
+        boolean isForced = Boolean.getBoolean("banana.fsync");
+        if (name.equals("on-exit")) {
+            return new Persister(taskFile, Policy.ON_EXIT, 0, isForced);
+        } else if (name.endsWith("ms")) {
+            String millis = name.substring(name.startsWith("every-") ? 6 : 0,
+                    name.length() - 2);
+            return new Persister(taskFile, Policy.INTERVAL,
+                    Long.parseLong(millis), isForced);
+        }
+        return new Persister(taskFile, Policy.EVERY_COMMAND, 0, isForced);
+    }
+
+    /**
+     * Queues a captured change, waiting only
+     * if the queue is full. The change is queued
+     * even if an earlier write failed, since
+     * failed writes are tried again.
+     *
+     * @param write the captured change.
+     * @throws IOException if an earlier write failed, or the
+     *                     background thread has stopped.
+     */
+    public void submit(TaskFile.Write write) throws IOException {
+        put(write);
+        checkAlive();
+        checkFailure();
+    }
+
+    /**
+     * Waits until everything queued so far
+     * has been written.
+     *
+     * @throws IOException if a write failed, or the
+     *                     background thread has stopped.
+     */
+    public void flush() throws IOException {
+        CountDownLatch done = new CountDownLatch(1);
+        put(done);
+        try {
+            while (!done.await(CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkAlive();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Writes everything still queued and
+     * stops the background thread.
+     *
+     * @throws IOException if a write failed.
+     */
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        flush();
+        isClosed = true;
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues an item, waiting while the queue is
+     * full, but only as long as the background
+     * thread is there to empty it.
+     */
+    private void put(Object item) throws IOException {
+        try {
+            while (!queue.offer(item, CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkAlive();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkAlive() throws IOException {
+        if (!worker.isAlive()) {
+            checkFailure();
+            throw new IOException("the tasks are no longer being saved");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Object> batch = new ArrayList<>();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        long lastWrite = System.nanoTime();
+        while (!isClosed) {
+            boolean isFlushing = false;
+            try {
+                Object first;
+                if (policy == Policy.INTERVAL) {
+                    long wait = lastWrite + intervalNanos - System.nanoTime();
+                    first = queue.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+                } else {
+                    first = queue.take();
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+                isFlushing = true;
+            }
+            for (Object item : batch) {
+                if (item instanceof TaskFile.Write) {
+                    hold((TaskFile.Write) item);
+                } else {
+                    isFlushing = true;
+                }
+            }
+            boolean isDue = policy == Policy.EVERY_COMMAND || policy == Policy.INTERVAL
+                    && System.nanoTime() - lastWrite >= intervalNanos;
+            if (isDue || isFlushing) {
+                writeHeld();
+                lastWrite = System.nanoTime();
+            }
+            for (Object item : batch) {
+                if (item instanceof CountDownLatch) {
+                    ((CountDownLatch) item).countDown();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void hold(TaskFile.Write write) {
+        if (write.isSnapshot()) {
+            held.clear();
+        }
+        held.add(write);
+    }
+
+    private void writeHeld() {
+        if (held.isEmpty()) {
+            return;
+        }
+        try {
+            taskFile.write(new ArrayList<>(held), isForced);
+            held.clear();
+        } catch (IOException e) {
+            // Kept, so the changes are tried again with the next write.
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException("the tasks could not be saved", e);
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The Pipeline class runs a script of commands
+ * in three stages, each on its own thread:
+ * parse reads and parses the lines, apply runs
+ * them in order as the only thread touching the
+ * list, and emit writes the responses out.
+ *
+ * Apply also renders each response, since a
+ * response such as a list shows the tasks as
+ * they were right after its command; rendering
+ * later would show changes made by the commands
+ * after it. Emit only writes the finished text.
+ *
+ * The stages are joined by RingBuffers, so a
+ * slow stage makes the one before it wait
+ * rather than letting work pile up. Saving
+ * stays with the background writer: apply only
+ * hands it the changes at each checkpoint.
+ *
+ * Once the script is done, describe tells how
+ * busy each stage was, so the slowest one is
+ * easy to spot.
+ */
+class Pipeline {
+
+    private static final int CAPACITY = 1024;
+
+    private final Duke duke;
+    private final int checkpoint;
+    private final Parser parser = new Parser();
+    private final RingBuffer<ParsedCommand> parsed = new RingBuffer<>(CAPACITY);
+    private final RingBuffer<String> responses = new RingBuffer<>(CAPACITY);
+    private final Stage parse = new Stage("parse");
+    private final Stage apply = new Stage("apply");
+    private final Stage emit = new Stage("emit");
+    private final Thread[] threads = new Thread[3];
+    private volatile boolean isBye;
+    private Exception failure;
+
+    /**
+     * Constructor for Pipeline.
+     *
+     * @param duke       the Duke to run the commands on.
+     * @param checkpoint the commands between saves, or 0
+     *                   to save only at the end.
+     */
+    Pipeline(Duke duke, int checkpoint) {
+        this.duke = duke;
+        this.checkpoint = checkpoint;
+        duke.deferCommits();
+    }
+
+    /**
+     * Runs every command in a script, then
+     * hands the changes to the background writer.
+     * The emit stage runs on the calling thread.
+     *
+     * @param in  the script.
+     * @param out where the responses go.
+     * @return the number of commands run.
+     * @throws IOException if the script cannot be read,
+     *                     or the tasks cannot be saved.
+     */
+    long run(BufferedReader in, Writer out) throws IOException {
+        threads[0] = new Thread(() -> runStage(parse, () -> parse(in)), "banana-parse");
+        threads[1] = new Thread(() -> runStage(apply, this::apply), "banana-apply");
+        threads[2] = Thread.currentThread();
+        for (int i = 0; i < 2; i++) {
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        runStage(emit, () -> emit(out));
+        // After a failure, parse may be stuck reading and is left behind.
+        for (int i = 0; i < 2 && getFailure() == null; i++) {
+            try {
+                threads[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Exception e = getFailure();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw new IOException(e);
+        }
+        return apply.count;
+    }
+
+    private void parse(BufferedReader in) throws IOException, InterruptedException {
+        String input;
+        while ((input = in.readLine()) != null) {
+            input = input.trim();
+            if (input.isEmpty()) {
+                continue;
+            } else if (input.equals("bye")) {
+                isBye = true;
+                break;
+            }
+            parsed.put(parser.parse(input));
+            parse.count++;
+        }
+        parsed.close();
+    }
+
+    /**
+     * Runs each command and renders its response
+     * straight away, while the list is as the
+     * command left it.
+     */
+    private void apply() throws IOException, InterruptedException {
+        Session session = new Session();
+        ParsedCommand command;
+        while ((command = parsed.take()) != null) {
+            responses.put(duke.getResponse(session, command));
+            apply.count++;
+            if (checkpoint > 0 && apply.count % checkpoint == 0) {
+                duke.commit();
+            }
+        }
+        duke.commit();
+        responses.close();
+    }
+
+    private void emit(Writer out) throws IOException, InterruptedException {
+        String response;
+        while ((response = responses.take()) != null) {
+            out.write(response);
+            out.write("\n\n");
+            emit.count++;
+        }
+        if (isBye) {
+            out.write(" Bye. Hope to see you again soon!\n\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Runs a stage, timing it. If it fails, the
+     * other stages are stopped so none waits
+     * forever on it.
+     */
+    private void runStage(Stage stage, StageBody body) {
+        stage.startNanos = System.nanoTime();
+        try {
+            body.run();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            // Another stage failed and stopped this one.
+        }
+        stage.endNanos = System.nanoTime();
+    }
+
+    private synchronized void fail(Exception e) {
+        if (failure == null) {
+            failure = e;
+        }
+        for (Thread thread : threads) {
+            if (thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private synchronized Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Describes how each stage spent its time,
+     * and how full the rings between them got.
+     * Only meaningful once run has returned.
+     *
+     * @return the description, one line per stage.
+     */
+    String describe() {
+        return parse.describe(0, parsed.getFullNanos()) + "\n"
+                + apply.describe(parsed.getEmptyNanos(), responses.getFullNanos()) + "\n"
+                + emit.describe(responses.getEmptyNanos(), 0) + "\n"
+                + String.format(" queues: parsed peak %d/%d, responses peak %d/%d",
+                        parsed.getPeakDepth(), parsed.getCapacity(),
+                        responses.getPeakDepth(), responses.getCapacity());
+    }
+
+    /**
+     * What one stage did and how long it took.
+     */
+    private static class Stage {
+
+        private final String name;
+        private long count;
+        private long startNanos;
+        private long endNanos;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        String describe(long inputWaitNanos, long outputWaitNanos) {
+            long busyNanos = Math.max(endNanos - startNanos - inputWaitNanos - outputWaitNanos, 1);
+            return String.format(" %s: %d items, busy %.2fs (%.0f/s),"
+                            + " waited %.2fs for input and %.2fs for room",
+                    name, count, busyNanos / 1e9, count * 1e9 / busyNanos,
+                    inputWaitNanos / 1e9, outputWaitNanos / 1e9);
+        }
+    }
+
+    /**
+     * The work of one stage.
+     */
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws IOException, InterruptedException;
+    }
+
+}
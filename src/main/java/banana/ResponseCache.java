@@ -0,0 +1,86 @@
+package banana;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The ResponseCache class keeps the responses to
+ * commands that only read the list, each with the
+ * list version it was made from. Asking again while
+ * the list is unchanged gives back the same text
+ * without working it out again, so clients polling
+ * list on a long list cost almost nothing.
+ *
+ * The least recently used responses are dropped
+ * once the cached text passes banana.cache.chars
+ * characters (4 million unless set). Responses
+ * over a quarter of that are not cached at all.
+ */
+class ResponseCache {
+
+    private static final long MAX_CHARS = Long.getLong("banana.cache.chars", 4_000_000L);
+
+    private final LinkedHashMap<String, Entry> entries;
+    private long chars;
+
+    /**
+     * Constructor for ResponseCache.
+     */
+    ResponseCache() {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the response to a command, if it was
+     * cached from the current version of the list.
+     *
+     * @param input   the command.
+     * @param version the current list version.
+     * @return the response, or null if there is none.
+     */
+    synchronized String get(String input, long version) {
+        Entry entry = entries.get(input);
+        return entry != null && entry.version == version ? entry.response : null;
+    }
+
+    /**
+     * Caches the response to a command.
+     *
+     * @param input    the command.
+     * @param version  the list version the response was made from.
+     * @param response the response.
+     */
+    synchronized void put(String input, long version, String response) {
+        long size = input.length() + response.length();
+        if (size > MAX_CHARS / 4) {
+            return;
+        }
+        Entry old = entries.put(input, new Entry(version, response));
+        if (old != null) {
+            chars -= input.length() + old.response.length();
+        }
+        chars += size;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (chars > MAX_CHARS && eldest.hasNext()) {
+            Map.Entry<String, Entry> e = eldest.next();
+            chars -= e.getKey().length() + e.getValue().response.length();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * One cached response.
+     */
+    private static class Entry {
+
+        private final long version;
+        private final String response;
+
+        Entry(long version, String response) {
+            this.version = version;
+            this.response = response;
+        }
+    }
+
+}
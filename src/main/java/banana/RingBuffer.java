@@ -0,0 +1,165 @@
+package banana;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The RingBuffer class passes items from one
+ * thread to one other thread, in order, through
+ * a fixed array. Neither side takes a lock: each
+ * only moves its own end of the ring.
+ *
+ * A full ring makes the producer wait, so a
+ * slow consumer holds back the stage before it
+ * instead of letting items pile up. Waiting
+ * spins briefly, then yields, then parks for
+ * short spells.
+ *
+ * @param <T> the type of the items.
+ */
+class RingBuffer<T> {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Object[] items;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile boolean isClosed;
+
+    // Each written by one side only, and read once both have finished.
+    private long fullNanos;
+    private long emptyNanos;
+    private long peakDepth;
+
+    /**
+     * Constructor for RingBuffer.
+     *
+     * @param capacity the most items held, rounded
+     *                 up to a power of two.
+     */
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.items = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an item, waiting while the ring is full.
+     * Only the producer thread may call this.
+     *
+     * @param item the item.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    void put(T item) throws InterruptedException {
+        long t = tail.get();
+        if (t - head.get() == items.length) {
+            long start = System.nanoTime();
+            for (int i = 0; t - head.get() == items.length; i++) {
+                pause(i);
+            }
+            fullNanos += System.nanoTime() - start;
+        }
+        items[(int) t & mask] = item;
+        tail.lazySet(t + 1);
+        peakDepth = Math.max(peakDepth, t + 1 - head.get());
+    }
+
+    /**
+     * Says no more items will be put, so the
+     * consumer stops once it has taken the rest.
+     * Only the producer thread may call this.
+     */
+    void close() {
+        isClosed = true;
+    }
+
+    /**
+     * Takes the oldest item, waiting while the
+     * ring is empty. Only the consumer thread
+     * may call this.
+     *
+     * @return the item, or null if the ring is empty and closed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    T take() throws InterruptedException {
+        long h = head.get();
+        if (h == tail.get()) {
+            long start = System.nanoTime();
+            for (int i = 0; h == tail.get(); i++) {
+                if (isClosed && h == tail.get()) {
+                    emptyNanos += System.nanoTime() - start;
+                    return null;
+                }
+                pause(i);
+            }
+            emptyNanos += System.nanoTime() - start;
+        }
+        int slot = (int) h & mask;
+        T item = (T) items[slot];
+        items[slot] = null;
+        head.lazySet(h + 1);
+        return item;
+    }
+
+    /**
+     * Gets the number of items waiting.
+     *
+     * @return the depth.
+     */
+    int getDepth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Gets the most items ever waiting at once.
+     *
+     * @return the peak depth.
+     */
+    long getPeakDepth() {
+        return peakDepth;
+    }
+
+    /**
+     * Gets the most items the ring holds.
+     *
+     * @return the capacity.
+     */
+    int getCapacity() {
+        return items.length;
+    }
+
+    /**
+     * Gets how long the producer has waited for room.
+     *
+     * @return the time, in nanoseconds.
+     */
+    long getFullNanos() {
+        return fullNanos;
+    }
+
+    /**
+     * Gets how long the consumer has waited for items.
+     *
+     * @return the time, in nanoseconds.
+     */
+    long getEmptyNanos() {
+        return emptyNanos;
+    }
+
+    private static void pause(int round) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        } else if (round < SPINS) {
+            Thread.onSpinWait();
+        } else if (round < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+}
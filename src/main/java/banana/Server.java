@@ -0,0 +1,165 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The Server class runs Banana without a window,
+ * taking commands over TCP on the loopback address
+ * so scripts on the same machine can use it.
+ *
+ * Each connection sends one command per line, in
+ * the same words the window takes, and gets back
+ * the same response text followed by an empty line.
+ * Sending "bye" closes the connection. Every
+ * connection is its own Session, so undo only
+ * undoes that connection's commands.
+ *
+ * Connections are served on virtual threads when
+ * the JVM has them (Java 21 and later), so thousands
+ * can be open at once; older JVMs get one pooled
+ * platform thread per connection instead.
+ */
+class Server {
+
+    /** The port used when none is given. */
+    static final int DEFAULT_PORT = 4141;
+
+    private static final int BACKLOG = 4096;
+
+    private final Duke duke;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for Server. Starts listening
+     * straight away, but only accepts connections
+     * once serve is called.
+     *
+     * @param duke the Duke every connection shares.
+     * @param port the port, or 0 for any free port.
+     * @throws IOException if the port cannot be opened.
+     */
+    Server(Duke duke, int port) throws IOException {
+        this.duke = duke;
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.executor = newExecutor();
+    }
+
+    /**
+     * Makes an executor running each task on a new
+     * virtual thread, looked up by reflection so the
+     * program still builds and runs on Java 11.
+     *
+     * @return the executor.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "banana-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port.
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is
+     * closed, serving each on its own thread.
+     */
+    void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections, drops the open
+     * ones and saves every pending change. A
+     * connection still running a command when
+     * Duke closes has its change refused, so it
+     * is never reported as made and then lost.
+     */
+    void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        executor.shutdownNow();
+        duke.close();
+    }
+
+    private void handle(Socket socket) {
+        Session session = new Session();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String input;
+            while ((input = in.readLine()) != null) {
+                input = input.trim();
+                if (input.equals("bye")) {
+                    out.write(" Bye. Hope to see you again soon!\n\n");
+                    out.flush();
+                    return;
+                }
+                out.write(duke.getResponse(session, input));
+                out.write("\n\n");
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; its session goes with it.
+        }
+    }
+
+    /**
+     * Starts a server on the tasks in info/Tasks.txt
+     * and serves until the program is stopped.
+     *
+     * @param port the port, or 0 for any free port.
+     * @throws IOException if the port cannot be opened.
+     */
+    static void run(int port) throws IOException {
+        Server server = new Server(new Duke("info/Tasks.txt"), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Banana is listening on "
+                + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort());
+        server.serve();
+    }
+
+}
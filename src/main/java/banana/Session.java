@@ -0,0 +1,23 @@
+package banana;
+
+/**
+ * The Session class holds what one user of
+ * a Duke needs to undo and redo their commands.
+ * Each front-end sharing a task list keeps
+ * its own, so undo only ever undoes what that
+ * front-end did.
+ */
+public class Session {
+
+    private final History history = new History();
+
+    /**
+     * Gets the record of this session's changes.
+     *
+     * @return the history.
+     */
+    History getHistory() {
+        return history;
+    }
+
+}
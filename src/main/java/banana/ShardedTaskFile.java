@@ -0,0 +1,302 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The ShardedTaskFile class splits the list into
+ * runs of neighbouring tasks, each kept in its own
+ * text file, e.g. Tasks.3.shard. A change only
+ * rewrites the shard holding the changed task.
+ *
+ * The manifest, Tasks.shards, lists the shard ids
+ * in list order. A shard that grows past twice the
+ * shard size is split in two, and an emptied shard
+ * is dropped. Both get new files and a new manifest,
+ * and old files are deleted only after the manifest
+ * stops naming them.
+ */
+class ShardedTaskFile implements TaskFile {
+
+    private static final int DEFAULT_SHARD_SIZE = 10000;
+
+    private File manifest;
+    private File textFile;
+    private String base;
+    private int shardSize;
+    private List<Shard> shards;
+    private int nextId;
+    private boolean isManifestDirty;
+    private List<Integer> retired;
+
+    /**
+     * Constructor for ShardedTaskFile.
+     *
+     * @param manifest the file listing the shards.
+     * @param textFile the text file to convert from if
+     *                 there is no manifest yet.
+     */
+    public ShardedTaskFile(File manifest, File textFile) {
+        this.manifest = manifest;
+        this.textFile = textFile;
+        String name = manifest.getPath();
+        this.base = name.substring(0, name.length() - ".shards".length());
+        this.shardSize = Integer.getInteger("banana.shard.size", DEFAULT_SHARD_SIZE);
+        this.shards = new ArrayList<>();
+        this.retired = new ArrayList<>();
+    }
+
+    /**
+     * Loads every shard named in the manifest
+     * in parallel and joins them in order.
+     *
+     * @param report where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if a shard cannot be read.
+     */
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        if (!manifest.exists()) {
+            return convert(report);
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(manifest.toPath(),
+                StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) {
+                    ids.add(Integer.parseInt(line.trim()));
+                }
+            }
+        }
+        List<ForkJoinTask<TaskList>> parts = new ArrayList<>();
+        for (int id : ids) {
+            parts.add(ForkJoinPool.commonPool().submit(
+                    () -> Storage.readText(shardFile(id), report)));
+            nextId = Math.max(nextId, id + 1);
+        }
+        TaskList tasks = new TaskList(new ArrayList<>());
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                TaskList part = parts.get(i).join();
+                shards.add(new Shard(ids.get(i), part.getSize(), !report.isClean()));
+                tasks.addTasks(part);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("could not load the shards of " + manifest, e);
+        }
+        return tasks;
+    }
+
+    private TaskList convert(LoadReport report) throws IOException {
+        TaskList tasks = textFile.exists()
+                ? Storage.readText(textFile, report)
+                : new TaskList(new ArrayList<>());
+        for (int start = 0; start < tasks.getSize(); start += shardSize) {
+            int end = Math.min(tasks.getSize(), start + shardSize);
+            Shard shard = new Shard(nextId++, end - start, false);
+            Storage.writeText(shardFile(shard.id).toPath(), tasks.subList(start, end));
+            shards.add(shard);
+        }
+        writeManifest(ids(), false);
+        return tasks;
+    }
+
+    /**
+     * Takes a copy of each dirty shard and,
+     * if shards were split or dropped, the
+     * new manifest.
+     *
+     * @param tasks the current list of tasks.
+     * @return the pending write, or null if nothing changed.
+     */
+    @Override
+    public Write capture(TaskList tasks) {
+        Map<Integer, TaskList> dirty = new LinkedHashMap<>();
+        int start = 0;
+        for (Shard shard : shards) {
+            if (shard.isDirty) {
+                dirty.put(shard.id, tasks.subList(start, start + shard.count));
+                shard.isDirty = false;
+            }
+            start += shard.count;
+        }
+        if (dirty.isEmpty() && !isManifestDirty) {
+            return null;
+        }
+        ShardWrites writes = new ShardWrites(dirty,
+                isManifestDirty ? ids() : null, new ArrayList<>(retired));
+        isManifestDirty = false;
+        retired.clear();
+        return writes;
+    }
+
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        Map<Integer, TaskList> dirty = new LinkedHashMap<>();
+        List<Integer> ids = null;
+        List<Integer> retiredIds = new ArrayList<>();
+        for (Write w : writes) {
+            ShardWrites sw = (ShardWrites) w;
+            dirty.putAll(sw.shards);
+            ids = sw.ids != null ? sw.ids : ids;
+            retiredIds.addAll(sw.retired);
+        }
+        for (int id : retiredIds) {
+            dirty.remove(id);
+        }
+        for (Map.Entry<Integer, TaskList> entry : dirty.entrySet()) {
+            Storage.writeText(shardFile(entry.getKey()).toPath(), entry.getValue(), isForced);
+        }
+        if (ids != null) {
+            writeManifest(ids, isForced);
+        }
+        for (int id : retiredIds) {
+            Files.deleteIfExists(shardFile(id).toPath());
+        }
+    }
+
+    private void writeManifest(List<Integer> ids, boolean isForced) throws IOException {
+        Path temp = manifest.toPath().resolveSibling(manifest.getName() + ".tmp");
+        StringBuilder sb = new StringBuilder();
+        for (int id : ids) {
+            sb.append(id).append('\n');
+        }
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+        Files.move(temp, manifest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File shardFile(int id) {
+        return new File(base + "." + id + ".shard");
+    }
+
+    private List<Integer> ids() {
+        List<Integer> ids = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            ids.add(shard.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the shard holding a position. A position
+     * one past the end belongs to the last shard.
+     *
+     * @param index the position in the list.
+     * @return the shard's place in the shard list.
+     */
+    private int locate(int index) {
+        int start = 0;
+        for (int i = 0; i < shards.size() - 1; i++) {
+            start += shards.get(i).count;
+            if (index < start) {
+                return i;
+            }
+        }
+        return shards.size() - 1;
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        if (shards.isEmpty()) {
+            shards.add(new Shard(nextId++, 0, true));
+            isManifestDirty = true;
+        }
+        int found = locate(index);
+        Shard shard = shards.get(found);
+        shard.count++;
+        shard.isDirty = true;
+        if (shard.count > 2 * shardSize) {
+            Shard first = new Shard(nextId++, shard.count / 2, true);
+            Shard second = new Shard(nextId++, shard.count - first.count, true);
+            shards.set(found, first);
+            shards.add(found + 1, second);
+            retired.add(shard.id);
+            isManifestDirty = true;
+        }
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        int found = locate(index);
+        Shard shard = shards.get(found);
+        shard.count--;
+        shard.isDirty = true;
+        if (shard.count == 0) {
+            shards.remove(found);
+            retired.add(shard.id);
+            isManifestDirty = true;
+        }
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        shards.get(locate(index)).isDirty = true;
+    }
+
+    /**
+     * A run of neighbouring tasks kept in one file.
+     */
+    private static class Shard {
+
+        private int id;
+        private int count;
+        private boolean isDirty;
+
+        Shard(int id, int count, boolean isDirty) {
+            this.id = id;
+            this.count = count;
+            this.isDirty = isDirty;
+        }
+    }
+
+    /**
+     * Copies of the shards to rewrite, plus the
+     * new manifest and the shards it dropped.
+     */
+    private static class ShardWrites implements Write {
+
+        private Map<Integer, TaskList> shards;
+        private List<Integer> ids;
+        private List<Integer> retired;
+
+        ShardWrites(Map<Integer, TaskList> shards, List<Integer> ids,
+                    List<Integer> retired) {
+            this.shards = shards;
+            this.ids = ids;
+            this.retired = retired;
+        }
+
+        @Override
+        public boolean isSnapshot() {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,659 @@
+package banana;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.time.LocalDate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The SlottedTaskFile class gives every task
+ * its own fixed-size slot in Tasks.slots, so
+ * marking, unmarking or deleting a task only
+ * rewrites a few bytes in place.
+ *
+ * Slots are chained in list order through
+ * next and prev links, and deleted slots are
+ * chained into a free list and handed out
+ * again to new tasks. Text that does not fit
+ * in a slot lives in the append-only
+ * Tasks.overflow file, which is compacted at
+ * start-up once it is mostly garbage. Changes
+ * too large to patch, such as an import, are
+ * written as a full rebuild instead.
+ *
+ * So that a crash never leaves a chain half
+ * patched, each group of patches is first
+ * written to Tasks.slots.log, which load plays
+ * again if it is whole. A rebuild writes both
+ * files to temporary files and renames them
+ * into place, the overflow file first.
+ */
+class SlottedTaskFile implements TaskFile {
+
+    private static final int MAGIC = 0x424E5331;
+    private static final int LOG_MAGIC = 0x424E534C;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 128;
+    private static final int FIXED_SIZE = 32;
+    private static final int INLINE_SIZE = SLOT_SIZE - FIXED_SIZE;
+    private static final int NONE = -1;
+    private static final int BULK_PATCHES = 1 << 16;
+
+    private static final int STATE = 0;
+    private static final int DONE = 2;
+    private static final int NEXT = 4;
+    private static final int PREV = 8;
+
+    private File file;
+    private File overflow;
+    private File textFile;
+    private File log;
+
+    private int[] slotOf;
+    private int size;
+    private int slotCount;
+    private ArrayDeque<Integer> freeSlots;
+    private long overflowEnd;
+    private List<Patch> pending;
+    private boolean isHeaderDirty;
+    private boolean needsRebuild;
+
+    /**
+     * Constructor for SlottedTaskFile.
+     *
+     * @param file     the slot file.
+     * @param overflow the file holding long descriptions.
+     * @param textFile the text file to convert from if
+     *                 the slot file does not exist yet.
+     */
+    public SlottedTaskFile(File file, File overflow, File textFile) {
+        this.file = file;
+        this.overflow = overflow;
+        this.textFile = textFile;
+        this.log = new File(file.getPath() + ".log");
+        this.freeSlots = new ArrayDeque<>();
+        this.pending = new ArrayList<>();
+    }
+
+    /**
+     * Loads the tasks by following the slot chain,
+     * converting the text file first if there is
+     * no slot file yet.
+     *
+     * @param report where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file is unreadable or corrupt.
+     */
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        recover();
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            TaskList tasks = textFile.exists()
+                    ? Storage.readText(textFile, report)
+                    : new TaskList(new ArrayList<>());
+            rebuild(tasks);
+            return tasks;
+        }
+        long inUse = 0;
+        ArrayList<Task> tasks = new ArrayList<>();
+        boolean isDamaged;
+        try (FileChannel slots = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel extra = FileChannel.open(overflow.toPath(),
+                     StandardOpenOption.READ, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE)) {
+            MappedByteBuffer buf = slots.map(FileChannel.MapMode.READ_ONLY, 0, slots.size());
+            if (buf.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a slot file");
+            }
+            slotCount = (int) Math.min(buf.getInt(4), (slots.size() - HEADER_SIZE) / SLOT_SIZE);
+            int head = buf.getInt(8);
+            int freeHead = buf.getInt(12);
+            size = buf.getInt(16);
+            overflowEnd = extra.size();
+            MappedByteBuffer longText = extra.map(FileChannel.MapMode.READ_ONLY, 0, overflowEnd);
+            boolean[] isSeen = new boolean[Math.max(slotCount, 0)];
+            slotOf = new int[16];
+            int slot = head;
+            for (; isInUse(buf, slot, isSeen); slot = buf.getInt((int) offset(slot) + NEXT)) {
+                isSeen[slot] = true;
+                if (tasks.size() == slotOf.length) {
+                    slotOf = Arrays.copyOf(slotOf, tasks.size() * 2);
+                }
+                slotOf[tasks.size()] = slot;
+                inUse += readSlot(buf, longText, slot, tasks, report);
+            }
+            isDamaged = slot != NONE || tasks.size() != size || !report.isClean();
+            int found = tasks.size();
+            for (int other = 0; other < isSeen.length; other++) {
+                // A broken chain leaves slots that are in use but were not reached.
+                if (isInUse(buf, other, isSeen)) {
+                    isSeen[other] = true;
+                    inUse += readSlot(buf, longText, other, tasks, report);
+                }
+            }
+            if (tasks.size() > found) {
+                isDamaged = true;
+                report.note("The order of " + (tasks.size() - found) + " tasks in "
+                        + file.getName() + " was lost, so they were put at the end.");
+            }
+            for (slot = freeHead; isFree(buf, slot, isSeen);
+                    slot = buf.getInt((int) offset(slot) + NEXT)) {
+                isSeen[slot] = true;
+                freeSlots.addLast(slot);
+            }
+            isDamaged |= slot != NONE;
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is corrupt", e);
+        }
+        TaskList loaded = new TaskList(tasks);
+        if (isDamaged || overflowEnd > 2 * inUse + (1 << 20)) {
+            rebuild(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Finishes whatever a crash cut short: a
+     * rebuild that had renamed the overflow file
+     * but not the slot file, or a logged group
+     * of patches that may be half applied.
+     *
+     * @throws IOException if the files cannot be read or written.
+     */
+    private void recover() throws IOException {
+        Path slotsTemp = tempOf(file);
+        Path extraTemp = tempOf(overflow);
+        if (Files.exists(slotsTemp) && !Files.exists(extraTemp)) {
+            Files.move(slotsTemp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.deleteIfExists(slotsTemp);
+        Files.deleteIfExists(extraTemp);
+        List<Patch> logged = readLog();
+        if (!logged.isEmpty() && file.exists()) {
+            try (FileChannel slots = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+                 FileChannel extra = FileChannel.open(overflow.toPath(),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                for (Patch p : logged) {
+                    p.apply(slots, extra);
+                }
+                extra.force(false);
+                slots.force(false);
+            }
+        }
+        Files.deleteIfExists(log.toPath());
+    }
+
+    /**
+     * Checks if a link leads to a slot holding a
+     * task that has not been reached before.
+     */
+    private static boolean isInUse(ByteBuffer buf, int slot, boolean[] isSeen) {
+        return slot >= 0 && slot < isSeen.length && !isSeen[slot]
+                && buf.get((int) offset(slot) + STATE) == 1;
+    }
+
+    /**
+     * Checks if a link leads to a free slot
+     * that has not been reached before.
+     */
+    private static boolean isFree(ByteBuffer buf, int slot, boolean[] isSeen) {
+        return slot >= 0 && slot < isSeen.length && !isSeen[slot]
+                && buf.get((int) offset(slot) + STATE) == 0;
+    }
+
+    /**
+     * Reads the task in a slot, moving the slot
+     * into quarantine if it cannot be read.
+     *
+     * @return the bytes of overflow text it uses.
+     */
+    private long readSlot(ByteBuffer buf, ByteBuffer longText, int slot, List<Task> tasks,
+                          LoadReport report) throws IOException {
+        try {
+            return readTask(buf, longText, slot, tasks);
+        } catch (RuntimeException e) {
+            byte[] bytes = new byte[SLOT_SIZE];
+            buf.duplicate().position((int) offset(slot)).get(bytes);
+            report.quarantine(file, "slot " + slot, 1, bytes);
+            return 0;
+        }
+    }
+
+    private long readTask(ByteBuffer buf, ByteBuffer longText, int slot, List<Task> tasks) {
+        int at = (int) offset(slot);
+        char type = (char) buf.get(at + 1);
+        boolean isDone = buf.get(at + DONE) != 0;
+        int epochDay = buf.getInt(at + 12);
+        int descLength = buf.getInt(at + 16);
+        int detailLength = buf.getInt(at + 20);
+        long overflowAt = buf.getLong(at + 24);
+        long textLength = (long) descLength + detailLength;
+        if (descLength < 0 || detailLength < 0 || overflowAt == NONE && textLength > INLINE_SIZE
+                || overflowAt != NONE && (overflowAt < 0
+                        || overflowAt + textLength > longText.limit())) {
+            throw new IllegalStateException("slot " + slot + " is damaged");
+        }
+        byte[] bytes = new byte[descLength + detailLength];
+        ByteBuffer source = overflowAt == NONE ? buf.duplicate() : longText.duplicate();
+        source.position(overflowAt == NONE ? at + FIXED_SIZE : (int) overflowAt);
+        source.get(bytes);
+        String description = new String(bytes, 0, descLength, StandardCharsets.UTF_8);
+        String detail = new String(bytes, descLength, detailLength, StandardCharsets.UTF_8);
+        LocalDate date = epochDay == Task.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        tasks.add(Storage.build(type, isDone, description, date, detail));
+        return overflowAt == NONE ? 0 : bytes.length;
+    }
+
+    /**
+     * Rewrites both files from scratch with
+     * the tasks in consecutive slots.
+     *
+     * @param tasks the list of tasks.
+     * @throws IOException if the files cannot be written.
+     */
+    private void rebuild(TaskList tasks) throws IOException {
+        reset(tasks);
+        writeAll(tasks);
+        pending.clear();
+    }
+
+    /**
+     * Points the in-memory slot map at the layout
+     * writeAll gives the tasks: slot i for task i.
+     *
+     * @param tasks the list of tasks.
+     */
+    private void reset(TaskList tasks) {
+        size = tasks.getSize();
+        slotCount = size;
+        slotOf = new int[Math.max(16, size)];
+        freeSlots.clear();
+        overflowEnd = 0;
+        for (int i = 0; i < size; i++) {
+            slotOf[i] = i;
+            Task t = tasks.getTask(i);
+            int textLength = t.getDescription().getBytes(StandardCharsets.UTF_8).length
+                    + t.getTime().getBytes(StandardCharsets.UTF_8).length;
+            overflowEnd += textLength > INLINE_SIZE ? textLength : 0;
+        }
+        isHeaderDirty = false;
+        needsRebuild = false;
+    }
+
+    /**
+     * Writes both files afresh through temporary
+     * files, always forced, as they hold the
+     * only copy of the list. The overflow file's
+     * temporary file is made first and renamed
+     * first, so a slot file's temporary file on
+     * its own means only its rename is left.
+     *
+     * @param tasks the list of tasks.
+     * @throws IOException if the files cannot be written.
+     */
+    private void writeAll(TaskList tasks) throws IOException {
+        int count = tasks.getSize();
+        long overflowAt = 0;
+        Path slotsTemp = tempOf(file);
+        Path extraTemp = tempOf(overflow);
+        try (FileChannel extra = FileChannel.open(extraTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel slots = FileChannel.open(slotsTemp, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < count; i++) {
+                Patch p = slotPatch(i, tasks.getTask(i), i - 1,
+                        i + 1 < count ? i + 1 : NONE, overflowAt);
+                overflowAt += p.overflowSize();
+                p.apply(slots, extra);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(count).putInt(count > 0 ? 0 : NONE)
+                    .putInt(NONE).putInt(count);
+            header.clear();
+            new Patch(0, header).apply(slots, extra);
+            extra.force(false);
+            slots.force(false);
+        }
+        // Logged patches were for the old layout.
+        Files.deleteIfExists(log.toPath());
+        Files.move(extraTemp, overflow.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        Files.move(slotsTemp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path tempOf(File f) {
+        return f.toPath().resolveSibling(f.getName() + ".tmp");
+    }
+
+    /**
+     * Takes the patches made since the last capture.
+     * After a bulk change, such as an import, a full
+     * rebuild is cheaper than thousands of patches.
+     *
+     * @param tasks the current list of tasks.
+     * @return the pending write, or null if nothing changed.
+     */
+    @Override
+    public Write capture(TaskList tasks) {
+        if (needsRebuild) {
+            reset(tasks);
+            pending.clear();
+            return new Rebuild(tasks.copy());
+        }
+        if (isHeaderDirty) {
+            pending.add(headerPatch());
+            isHeaderDirty = false;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Patches patches = new Patches(pending);
+        pending = new ArrayList<>();
+        return patches;
+    }
+
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        int start = 0;
+        if (writes.get(0) instanceof Rebuild) {
+            writeAll(((Rebuild) writes.get(0)).getTasks());
+            start = 1;
+        }
+        if (start == writes.size()) {
+            return;
+        }
+        List<Patch> group = new ArrayList<>();
+        for (Write w : writes.subList(start, writes.size())) {
+            group.addAll(((Patches) w).patches);
+        }
+        // A lone patch of a byte or two, such as marking a task done, cannot be torn.
+        boolean isLogged = group.size() > 1 || group.get(0).overflowText != null;
+        if (isLogged) {
+            writeLog(group, isForced);
+        }
+        try (FileChannel slots = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+             FileChannel extra = FileChannel.open(overflow.toPath(), StandardOpenOption.WRITE)) {
+            for (Patch p : group) {
+                p.apply(slots, extra);
+            }
+            if (isForced) {
+                extra.force(false);
+                slots.force(false);
+            }
+        }
+        if (isLogged) {
+            try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(0);
+            }
+        }
+    }
+
+    /**
+     * Writes a group of patches to the log, with
+     * a CRC32 at the end so load can tell a whole
+     * group from one cut short.
+     */
+    private void writeLog(List<Patch> group, boolean isForced) throws IOException {
+        int length = 8;
+        for (Patch p : group) {
+            length += 24 + p.bytes.limit() + (int) p.overflowSize();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(length + 8);
+        buf.putInt(LOG_MAGIC).putInt(group.size());
+        for (Patch p : group) {
+            buf.putLong(p.position).putInt(p.bytes.limit()).put(p.bytes.duplicate())
+                    .putLong(p.overflowAt).putInt((int) p.overflowSize());
+            if (p.overflowText != null) {
+                buf.put(p.overflowText.duplicate());
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putLong(crc.getValue()).flip();
+        try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the group of patches in the log.
+     *
+     * @return the patches, or none if the log is
+     *         missing, empty or cut short.
+     */
+    private List<Patch> readLog() throws IOException {
+        List<Patch> patches = new ArrayList<>();
+        if (!log.exists() || log.length() < 16) {
+            return patches;
+        }
+        byte[] bytes = Files.readAllBytes(log.toPath());
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (buf.getLong(bytes.length - 8) != crc.getValue() || buf.getInt() != LOG_MAGIC) {
+            return patches;
+        }
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            long position = buf.getLong();
+            Patch p = new Patch(position, slice(buf, buf.getInt()));
+            p.overflowAt = buf.getLong();
+            int overflowSize = buf.getInt();
+            if (overflowSize > 0) {
+                p.overflowText = slice(buf, overflowSize);
+            }
+            patches.add(p);
+        }
+        return patches;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int length) {
+        ByteBuffer part = buf.duplicate();
+        part.limit(part.position() + length);
+        buf.position(buf.position() + length);
+        return part.slice();
+    }
+
+    private void checkBulk() {
+        if (pending.size() > BULK_PATCHES) {
+            needsRebuild = true;
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        if (needsRebuild) {
+            return;
+        }
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        int prev = index > 0 ? slotOf[index - 1] : NONE;
+        int next = index < size ? slotOf[index] : NONE;
+        if (size == slotOf.length) {
+            slotOf = Arrays.copyOf(slotOf, size * 2);
+        }
+        System.arraycopy(slotOf, index, slotOf, index + 1, size - index);
+        slotOf[index] = slot;
+        size++;
+        Patch patch = slotPatch(slot, t, prev, next, overflowEnd);
+        overflowEnd += patch.overflowSize();
+        pending.add(patch);
+        if (prev != NONE) {
+            pending.add(intPatch(prev, NEXT, slot));
+        }
+        if (next != NONE) {
+            pending.add(intPatch(next, PREV, slot));
+        }
+        isHeaderDirty = true;
+        checkBulk();
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        if (needsRebuild) {
+            return;
+        }
+        int slot = slotOf[index];
+        int prev = index > 0 ? slotOf[index - 1] : NONE;
+        int next = index + 1 < size ? slotOf[index + 1] : NONE;
+        System.arraycopy(slotOf, index + 1, slotOf, index, size - index - 1);
+        size--;
+        if (prev != NONE) {
+            pending.add(intPatch(prev, NEXT, next));
+        }
+        if (next != NONE) {
+            pending.add(intPatch(next, PREV, prev));
+        }
+        int freeHead = freeSlots.isEmpty() ? NONE : freeSlots.peek();
+        pending.add(new Patch(offset(slot) + STATE, ByteBuffer.allocate(1).put(0, (byte) 0)));
+        pending.add(intPatch(slot, NEXT, freeHead));
+        freeSlots.push(slot);
+        isHeaderDirty = true;
+        checkBulk();
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        if (needsRebuild) {
+            return;
+        }
+        byte isDone = (byte) (t.getIsDone().equals("[X]") ? 1 : 0);
+        pending.add(new Patch(offset(slotOf[index]) + DONE,
+                ByteBuffer.allocate(1).put(0, isDone)));
+        checkBulk();
+    }
+
+    private static long offset(int slot) {
+        return HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private Patch headerPatch() {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+        buf.putInt(MAGIC)
+                .putInt(slotCount)
+                .putInt(size > 0 ? slotOf[0] : NONE)
+                .putInt(freeSlots.isEmpty() ? NONE : freeSlots.peek())
+                .putInt(size);
+        buf.clear();
+        return new Patch(0, buf);
+    }
+
+    private static Patch intPatch(int slot, int field, int value) {
+        return new Patch(offset(slot) + field, ByteBuffer.allocate(4).putInt(0, value));
+    }
+
+    private static Patch slotPatch(int slot, Task t, int prev, int next, long overflowAt) {
+        byte[] description = t.getDescription().getBytes(StandardCharsets.UTF_8);
+        byte[] detail = t.getTime().getBytes(StandardCharsets.UTF_8);
+        int textLength = description.length + detail.length;
+        boolean isInline = textLength <= INLINE_SIZE;
+        ByteBuffer buf = ByteBuffer.allocate(SLOT_SIZE);
+        buf.put((byte) 1)
+                .put((byte) Storage.typeOf(t))
+                .put((byte) (t.getIsDone().equals("[X]") ? 1 : 0))
+                .put((byte) 0)
+                .putInt(next)
+                .putInt(prev)
+                .putInt(t.getEpochDay())
+                .putInt(description.length)
+                .putInt(detail.length)
+                .putLong(isInline ? NONE : overflowAt);
+        ByteBuffer text = isInline ? buf : ByteBuffer.allocate(textLength);
+        text.put(description).put(detail);
+        buf.clear();
+        Patch patch = new Patch(offset(slot), buf);
+        if (!isInline) {
+            text.flip();
+            patch.overflowAt = overflowAt;
+            patch.overflowText = text;
+        }
+        return patch;
+    }
+
+    /**
+     * A positional write of a few bytes into the
+     * slot file, plus any long text appended to
+     * the overflow file.
+     */
+    private static class Patch {
+
+        private long position;
+        private ByteBuffer bytes;
+        private long overflowAt;
+        private ByteBuffer overflowText;
+
+        Patch(long position, ByteBuffer bytes) {
+            this.position = position;
+            this.bytes = bytes;
+        }
+
+        long overflowSize() {
+            return overflowText == null ? 0 : overflowText.limit();
+        }
+
+        void apply(FileChannel slots, FileChannel extra) throws IOException {
+            if (overflowText != null) {
+                ByteBuffer text = overflowText.duplicate();
+                while (text.hasRemaining()) {
+                    extra.write(text, overflowAt + text.position());
+                }
+            }
+            ByteBuffer buf = bytes.duplicate();
+            while (buf.hasRemaining()) {
+                slots.write(buf, position + buf.position());
+            }
+        }
+    }
+
+    /**
+     * A copy of the whole list to lay out
+     * afresh in both files.
+     */
+    private static class Rebuild extends Snapshot {
+
+        Rebuild(TaskList tasks) {
+            super(tasks);
+        }
+    }
+
+    /**
+     * The patches captured from one command.
+     */
+    private static class Patches implements Write {
+
+        private List<Patch> patches;
+
+        Patches(List<Patch> patches) {
+            this.patches = patches;
+        }
+
+        @Override
+        public boolean isSnapshot() {
+            return false;
+        }
+    }
+
+}
@@ -1,14 +1,24 @@
 package banana;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
 
 /**
  * The Storage class stores the
@@ -19,8 +29,40 @@ import java.util.Scanner;
  */
 public class Storage {
 
+    static final int CHECKSUM_PREFIX = "1c291ca3 ~ ".length();
+    private static final Map<String, Integer> MONTHS = new HashMap<>();
+
+    static {
+        DateTimeFormatter month = DateTimeFormatter.ofPattern("MMM");
+        for (int m = 1; m <= 12; m++) {
+            MONTHS.put(LocalDate.of(2000, m, 1).format(month), m);
+        }
+    }
+
+    /**
+     * The ways the tasks can be kept on disk.
+     */
+    public enum Mode {
+        TEXT, JOURNAL, BINARY, SLOTTED, SHARDED, COMPRESSED, CHECKSUMMED;
+
+        /**
+         * Gets the mode named by the
+         * banana.storage system property.
+         *
+         * @return the chosen mode, TEXT by default.
+         */
+        public static Mode fromProperty() {
+            String name = System.getProperty("banana.storage", "text");
+            return Mode.valueOf(name.trim().toUpperCase());
+        }
+    }
+
     private String filePath;
     private File file;
+    private Mode mode;
+    private TaskFile taskFile;
+    private Persister persister;
+    private LoadReport report;
 
     /**
      * Constructor for the Storage class.
@@ -28,7 +70,18 @@ public class Storage {
      * @param filePath the file path.
      */
     public Storage(String filePath) {
+        this(filePath, Mode.fromProperty());
+    }
+
+    /**
+     * Constructor for the Storage class.
+     *
+     * @param filePath the file path.
+     * @param mode     the on-disk format to use.
+     */
+    public Storage(String filePath, Mode mode) {
         this.filePath = filePath;
+        this.mode = mode;
     }
 
     /**
@@ -40,17 +93,31 @@ public class Storage {
         return filePath;
     }
 
+    /**
+     * Gets a file next to the task file
+     * sharing its name, e.g. Tasks.journal.
+     *
+     * @param extension the new extension, including the dot.
+     * @return the sibling file.
+     */
+    public File getSibling(String extension) {
+        String base = filePath.endsWith(".txt")
+                ? filePath.substring(0, filePath.length() - 4)
+                : filePath;
+        return new File(base + extension);
+    }
+
     /**
      * Creates the directory and the file.
      *
      * @throws IOException if unable to create.
      */
     public void setFile() throws IOException {
-        File directory = new File("info");
-        if (!directory.exists()) {
-            Files.createDirectory(Paths.get("info"));
-        }
         file = new File(filePath);
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.exists()) {
+            Files.createDirectories(directory.toPath());
+        }
         if (!file.exists()) {
             Files.createFile(Paths.get(filePath));
         }
@@ -65,28 +132,340 @@ public class Storage {
      */
     public TaskList load(File f) throws IOException {
         setFile();
-        TaskList tasks = new TaskList(new ArrayList<>());
-        Scanner sc = new Scanner(f);
-        while (sc.hasNext()) {
-            String line = sc.nextLine();
-            assert line.contains(" ~ ");
-            String[] taskInfo = line.split(" ~ ");
-            Task newTask;
-            if (taskInfo[0].equals("T")) {
-                newTask = new ToDo(taskInfo[2]);
-            } else if (taskInfo[0].equals("D")) {
-                newTask = new Deadline(taskInfo[2], taskInfo[3]);
-            } else if (taskInfo[0].equals("E")) {
-                newTask = new Event(taskInfo[2], taskInfo[3]);
-            } else {
-                newTask = new Task(taskInfo[1]);
+        if (mode == Mode.JOURNAL) {
+            taskFile = new JournalTaskFile(f, getSibling(".journal"));
+        } else if (mode == Mode.BINARY) {
+            taskFile = new BinaryTaskFile(getSibling(".bin"), f);
+        } else if (mode == Mode.SLOTTED) {
+            taskFile = new SlottedTaskFile(getSibling(".slots"),
+                    getSibling(".overflow"), f);
+        } else if (mode == Mode.SHARDED) {
+            taskFile = new ShardedTaskFile(getSibling(".shards"), f);
+        } else if (mode == Mode.COMPRESSED) {
+            taskFile = new CompressedTaskFile(getSibling(".dz"), f);
+        } else if (mode == Mode.CHECKSUMMED) {
+            taskFile = new ChecksummedTaskFile(getSibling(".crc"), f);
+        } else {
+            taskFile = new TextTaskFile(f);
+        }
+        report = new LoadReport();
+        TaskList tasks = taskFile.load(report);
+        tasks.addListener(taskFile);
+        persister = Persister.fromProperties(taskFile);
+        return tasks;
+    }
+
+    /**
+     * Describes any saved lines the last
+     * load could not read.
+     *
+     * @return the description, or an empty string if none.
+     */
+    public String getLoadReport() {
+        return report == null ? "" : report.describe();
+    }
+
+    /**
+     * Hands the changes made to the tasks since
+     * the last commit to the background writer.
+     *
+     * @param tasks the list of tasks.
+     * @throws IOException if an earlier write failed.
+     */
+    public void commit(TaskList tasks) throws IOException {
+        if (taskFile == null) {
+            return;
+        }
+        TaskFile.Write write = taskFile.capture(tasks);
+        if (write != null) {
+            persister.submit(write);
+        }
+    }
+
+    /**
+     * Waits until every commit so far is on disk.
+     *
+     * @throws IOException if a write failed.
+     */
+    public void flush() throws IOException {
+        if (persister != null) {
+            persister.flush();
+        }
+    }
+
+    /**
+     * Writes out every pending commit and
+     * stops the background writer.
+     *
+     * @throws IOException if a write failed.
+     */
+    public void close() throws IOException {
+        if (persister != null) {
+            persister.close();
+        }
+    }
+
+    /**
+     * Reads a file of text-format tasks,
+     * one task per line. Large files are
+     * decoded in parallel.
+     *
+     * @param f the file.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file cannot be read.
+     */
+    static TaskList readText(File f) throws IOException {
+        return ParallelTextLoader.load(f);
+    }
+
+    /**
+     * Reads a file of text-format tasks, moving
+     * lines that cannot be read into quarantine
+     * instead of failing.
+     *
+     * @param f      the file.
+     * @param report where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file cannot be read.
+     */
+    static TaskList readText(File f, LoadReport report) throws IOException {
+        return ParallelTextLoader.load(f, false, report);
+    }
+
+    /**
+     * Writes tasks in text format, one
+     * task per line.
+     *
+     * @param path  the file to overwrite.
+     * @param tasks the list of tasks.
+     * @throws IOException if not able to write to the file.
+     */
+    static void writeText(Path path, TaskList tasks) throws IOException {
+        writeText(path, tasks, false);
+    }
+
+    /**
+     * Writes tasks in text format through a
+     * temporary file, so a crash never leaves
+     * a half-written file behind.
+     *
+     * @param path     the file to overwrite.
+     * @param tasks    the list of tasks.
+     * @param isForced whether to fsync before replacing the file.
+     * @throws IOException if not able to write to the file.
+     */
+    static void writeText(Path path, TaskList tasks, boolean isForced) throws IOException {
+        writeText(path, tasks, isForced, false);
+    }
+
+    /**
+     * Writes tasks in text format through a
+     * temporary file, optionally starting each
+     * line with the CRC32C of the rest of it,
+     * e.g. "1c291ca3 ~ T ~ No ~ read book".
+     *
+     * @param path          the file to overwrite.
+     * @param tasks         the list of tasks.
+     * @param isForced      whether to fsync before replacing the file.
+     * @param isChecksummed whether to add checksums.
+     * @throws IOException if not able to write to the file.
+     */
+    static void writeText(Path path, TaskList tasks, boolean isForced,
+                          boolean isChecksummed) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             BufferedWriter bw = new BufferedWriter(
+                     new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            StringBuilder line = new StringBuilder();
+            CRC32C crc = new CRC32C();
+            for (int i = 0; i < tasks.getSize(); i++) {
+                line.setLength(0);
+                encode(tasks.getTask(i), line);
+                if (isChecksummed) {
+                    crc.reset();
+                    crc.update(line.toString().getBytes(StandardCharsets.UTF_8));
+                    String hex = Long.toHexString(crc.getValue());
+                    bw.append("00000000", hex.length(), 8).append(hex).append(" ~ ");
+                }
+                bw.append(line).append('\n');
             }
-            if (line.contains("Yes")) {
-                newTask.setIsDone(true);
+            bw.flush();
+            if (isForced) {
+                out.getChannel().force(true);
             }
-            tasks.addTask(newTask);
         }
-        return tasks;
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Turns a line of the text file back into
+     * a task, checking first that it has every
+     * field its type needs.
+     *
+     * @param line the stored line.
+     * @return the task, or null if the line is damaged.
+     */
+    static Task tryDecode(String line) {
+        String[] taskInfo = line.split(" ~ ");
+        String type = taskInfo[0];
+        int fields = type.equals("T") ? 3 : type.equals("D") || type.equals("E") ? 4 : 2;
+        if (taskInfo.length < fields) {
+            return null;
+        }
+        try {
+            return decode(line);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Turns a line of the text file
+     * back into a task.
+     *
+     * @param line the stored line.
+     * @return the task.
+     */
+    static Task decode(String line) {
+        assert line.contains(" ~ ");
+        String[] taskInfo = line.split(" ~ ");
+        Task newTask;
+        if (taskInfo[0].equals("T")) {
+            newTask = new ToDo(taskInfo[2]);
+        } else if (taskInfo[0].equals("D") || taskInfo[0].equals("E")) {
+            newTask = buildDated(taskInfo[0].charAt(0), taskInfo[2], taskInfo[3]);
+        } else {
+            newTask = new Task(taskInfo[1]);
+        }
+        if (line.contains("Yes")) {
+            newTask.setIsDone(true);
+        }
+        return newTask;
+    }
+
+    /**
+     * Builds a deadline or event from its stored
+     * text, recovering the calendar date if the
+     * text starts with one written like "Dec 2 2019".
+     *
+     * @param type        'D' or 'E'.
+     * @param description the task description.
+     * @param detail      the stored date and time text.
+     * @return the task.
+     */
+    static Task buildDated(char type, String description, String detail) {
+        int monthEnd = detail.indexOf(' ');
+        int dayEnd = monthEnd < 0 ? -1 : detail.indexOf(' ', monthEnd + 1);
+        int yearEnd = dayEnd < 0 ? -1 : detail.indexOf(' ', dayEnd + 1);
+        LocalDate date = null;
+        if (yearEnd >= 0) {
+            Integer month = MONTHS.get(detail.substring(0, monthEnd));
+            int day = readNumber(detail, monthEnd + 1, dayEnd, 2);
+            int year = readNumber(detail, dayEnd + 1, yearEnd, 4);
+            if (month != null) {
+                date = DateTimeParser.dateOf(year, month, day);
+            }
+        }
+        if (date == null) {
+            return build(type, false, description, null, detail);
+        }
+        return build(type, false, description, date, detail.substring(yearEnd + 1));
+    }
+
+    /**
+     * Reads the digits from start to end, which must
+     * not start with 0 or be more than maxDigits long.
+     *
+     * @return the number, or -1 if it is not one.
+     */
+    private static int readNumber(String s, int start, int end, int maxDigits) {
+        if (end <= start || end - start > maxDigits || s.charAt(start) == '0') {
+            return -1;
+        }
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + c - '0';
+        }
+        return n;
+    }
+
+    /**
+     * Builds a task from its stored parts.
+     *
+     * @param type        'T', 'D', 'E' or anything else for a plain task.
+     * @param isDone      whether the task is done.
+     * @param description the task description.
+     * @param date        the calendar date, or null.
+     * @param detail      the time or free text of a deadline or event.
+     * @return the task.
+     */
+    static Task build(char type, boolean isDone, String description,
+                      LocalDate date, String detail) {
+        Task newTask;
+        if (type == 'T') {
+            newTask = new ToDo(description);
+        } else if (type == 'D') {
+            newTask = date == null ? new Deadline(description, detail)
+                    : new Deadline(description, date, detail);
+        } else if (type == 'E') {
+            newTask = date == null ? new Event(description, detail)
+                    : new Event(description, date, detail);
+        } else {
+            newTask = new Task(description);
+        }
+        newTask.setIsDone(isDone);
+        return newTask;
+    }
+
+    /**
+     * Gets the type letter used when storing a task.
+     *
+     * @param t the task.
+     * @return 'T', 'D', 'E' or 'P' for a plain task.
+     */
+    static char typeOf(Task t) {
+        if (t instanceof ToDo) {
+            return 'T';
+        } else if (t instanceof Deadline) {
+            return 'D';
+        } else if (t instanceof Event) {
+            return 'E';
+        }
+        return 'P';
+    }
+
+    /**
+     * Appends the text-format line of a
+     * task, without the line break.
+     *
+     * @param currentTask the task.
+     * @param sb          where the line is written to.
+     */
+    static void encode(Task currentTask, StringBuilder sb) {
+        assert currentTask != null;
+        String doneStr = currentTask.getIsDone().equals("[X]") ? "Yes" : "No";
+        if (currentTask instanceof ToDo) {
+            sb.append("T ~ ").append(doneStr).append(" ~ ")
+                    .append(currentTask.getDescription());
+        } else if (currentTask instanceof Deadline) {
+            Deadline dl = (Deadline) currentTask;
+            sb.append("D ~ ").append(doneStr).append(" ~ ")
+                    .append(currentTask.getDescription()).append(" ~ ")
+                    .append(dl.getDeadLine());
+        } else if (currentTask instanceof Event) {
+            Event ev = (Event) currentTask;
+            sb.append("E ~ ").append(doneStr).append(" ~ ")
+                    .append(currentTask.getDescription()).append(" ~ ")
+                    .append(ev.getEvent());
+        } else {
+            sb.append(doneStr).append(" ~ ")
+                    .append(currentTask.getDescription());
+        }
     }
 
 }
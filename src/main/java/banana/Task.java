@@ -1,5 +1,7 @@
 package banana;
 
+import java.time.LocalDate;
+
 /**
  * The Task class handles tasks.
  *
@@ -7,6 +9,9 @@ package banana;
  */
 class Task {
 
+    /** The epoch day of a task without a calendar date. */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
     private String description;
     private boolean isDone;
 
@@ -46,6 +51,35 @@ class Task {
         this.isDone = isDone;
     }
 
+    /**
+     * Gets the calendar date, if the task has one.
+     *
+     * @return the date, or null.
+     */
+    LocalDate getDate() {
+        return null;
+    }
+
+    /**
+     * Gets the time or free text after the date.
+     *
+     * @return the text, empty for todos and plain tasks.
+     */
+    String getTime() {
+        return "";
+    }
+
+    /**
+     * Gets the calendar date as an epoch day,
+     * the form the indexes and files keep it in.
+     *
+     * @return the epoch day, or NO_DATE.
+     */
+    int getEpochDay() {
+        LocalDate date = getDate();
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+
     @Override
     public String toString() {
         return getIsDone() + " " + description;
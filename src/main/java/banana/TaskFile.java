@@ -0,0 +1,91 @@
+package banana;
+
+import java.io.IOException;
+
+import java.util.List;
+
+/**
+ * The TaskFile interface is implemented
+ * by every on-disk format the tasks
+ * can be stored in.
+ *
+ * Saving happens in two steps: capture runs
+ * on the thread that changed the tasks and
+ * records what needs writing, while write
+ * runs later on the persistence thread.
+ */
+interface TaskFile extends TaskListener {
+
+    /**
+     * Reads every task stored in the file.
+     *
+     * @param report where to record damaged lines.
+     * @return the loaded list of tasks.
+     * @throws IOException if the file cannot be read.
+     */
+    TaskList load(LoadReport report) throws IOException;
+
+    /**
+     * Takes whatever has changed since the
+     * last capture, so it can be written
+     * on another thread.
+     *
+     * @param tasks the current list of tasks.
+     * @return the pending write, or null if nothing changed.
+     */
+    Write capture(TaskList tasks);
+
+    /**
+     * Writes captured changes in order, as one
+     * group. The group never holds anything
+     * before its last snapshot.
+     *
+     * @param writes   the captured changes, oldest first.
+     * @param isForced whether to fsync before returning.
+     * @throws IOException if the file cannot be written.
+     */
+    void write(List<Write> writes, boolean isForced) throws IOException;
+
+    /**
+     * A change captured from the tasks
+     * but not yet written.
+     */
+    interface Write {
+
+        /**
+         * Checks if this write holds the whole list,
+         * making any earlier pending write redundant.
+         *
+         * @return whether this is a full snapshot.
+         */
+        boolean isSnapshot();
+    }
+
+    /**
+     * A full copy of the list, for formats
+     * that rewrite the whole file.
+     */
+    class Snapshot implements Write {
+
+        private TaskList tasks;
+
+        /**
+         * Constructor for Snapshot.
+         *
+         * @param tasks a copy of the list of tasks.
+         */
+        Snapshot(TaskList tasks) {
+            this.tasks = tasks;
+        }
+
+        TaskList getTasks() {
+            return tasks;
+        }
+
+        @Override
+        public boolean isSnapshot() {
+            return true;
+        }
+    }
+
+}
@@ -1,27 +1,249 @@
 package banana;
 
-import java.util.List;
+import java.time.LocalDate;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * The TaskList class stores
  * all the tasks.
  *
+ * Tasks are kept in a TaskTree, so getting,
+ * inserting or removing the task at any
+ * position takes O(log n) time however long
+ * the list gets. Positions start from 0 here;
+ * the task numbers users see start from 1.
+ *
+ * Setting the banana.tasklist system property
+ * to "columnar" keeps them in ColumnarTasks
+ * instead, which needs far less memory for
+ * very long lists. Tasks read from it are new
+ * objects each time, so the word and date
+ * indexes are not kept, and find and the date
+ * queries read through the list instead.
+ *
+ * A list shared by several sessions is guarded
+ * by a read-write lock, held for a whole command
+ * so its checks and changes happen together.
+ * Commands that only read share the lock; those
+ * that change the list hold it alone. Lists that
+ * only one thread uses need not lock at all.
+ *
  * @author: Ravi Ananya
  */
 public class TaskList {
 
-    private ArrayList<Task> allTasks;
+    private static final boolean IS_COLUMNAR =
+            "columnar".equalsIgnoreCase(System.getProperty("banana.tasklist"));
+
+    private TaskStore allTasks;
+    private ArrayList<TaskListener> listeners;
+    private volatile WordIndex wordIndex;
+    private volatile DateIndex dateIndex;
+    private final StampedLock lock = new StampedLock();
+    private long version;
 
     /**
      * Constructor for the TaskList class.
+     *
+     * @param tasks the tasks to start with, in order.
      */
     public TaskList(ArrayList<Task> tasks) {
-        this.allTasks = tasks;
+        this(IS_COLUMNAR ? new ColumnarTasks(tasks) : new TaskTree(tasks));
+    }
+
+    private TaskList(TaskStore store) {
+        this.allTasks = store;
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Registers a listener to be told
+     * about every later change.
+     *
+     * @param listener the listener.
+     */
+    public void addListener(TaskListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about changes.
+     *
+     * @param listener the listener.
+     */
+    public void removeListener(TaskListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Locks the list for reading. Other readers
+     * may hold it too, but nothing can change
+     * the list until it is unlocked.
+     *
+     * @return the stamp to unlock with.
+     */
+    public long lockForReading() {
+        return lock.readLock();
+    }
+
+    /**
+     * Locks the list for changing, waiting
+     * for every reader and writer to finish.
+     *
+     * @return the stamp to unlock with.
+     */
+    public long lockForWriting() {
+        return lock.writeLock();
     }
 
-    private ArrayList<Task> getTasks() {
-        return allTasks;
+    /**
+     * Gets the version of the list, which goes
+     * up with every change. Two reads with the
+     * same version saw the same tasks.
+     *
+     * @return the version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Unlocks the list.
+     *
+     * @param stamp the stamp from locking it.
+     */
+    public void unlock(long stamp) {
+        lock.unlock(stamp);
+    }
+
+    /**
+     * Builds the word index used by find, if
+     * there is none yet. From then on it is
+     * kept up to date with every change.
+     */
+    public synchronized void indexWords() {
+        if (wordIndex == null && allTasks.isIdentityKept()) {
+            wordIndex = new WordIndex(this);
+            listeners.add(wordIndex);
+        }
+    }
+
+    /**
+     * Finds the tasks whose descriptions have a
+     * word starting with each word of the query.
+     *
+     * @param query the searched words.
+     * @return the matching tasks, in list order.
+     */
+    public TaskList find(String query) {
+        indexWords();
+        if (wordIndex == null) {
+            List<String> words = WordIndex.words(query);
+            ArrayList<Task> found = new ArrayList<>();
+            for (int i = 0; i < getSize() && !words.isEmpty(); i++) {
+                Task t = getTask(i);
+                if (WordIndex.matches(words, t.getDescription())) {
+                    found.add(t);
+                }
+            }
+            return new TaskList(found);
+        }
+        Set<Task> matches = wordIndex.find(query);
+        ArrayList<Task> found = new ArrayList<>(matches.size());
+        if (matches.size() > getSize() / 16) {
+            for (int i = 0; i < getSize(); i++) {
+                if (matches.contains(getTask(i))) {
+                    found.add(getTask(i));
+                }
+            }
+        } else {
+            found.addAll(matches);
+            found.sort(Comparator.comparingInt(allTasks::indexOf));
+        }
+        return new TaskList(found);
+    }
+
+    /**
+     * Builds the date index used by the date
+     * queries, if there is none yet. From then
+     * on it is kept up to date with every change.
+     */
+    public synchronized void indexDates() {
+        if (dateIndex == null && allTasks.isIdentityKept()) {
+            dateIndex = new DateIndex(this);
+            listeners.add(dateIndex);
+        }
+    }
+
+    /**
+     * Finds the deadlines and events dated
+     * between two days, both included.
+     *
+     * @param from the first day, or null for no limit.
+     * @param to   the last day.
+     * @return the tasks, by date and then in list order.
+     */
+    public TaskList findDated(LocalDate from, LocalDate to) {
+        indexDates();
+        if (dateIndex == null) {
+            return scanDated(from, to);
+        }
+        List<Task> found = from == null ? dateIndex.upTo(to) : dateIndex.between(from, to);
+        if (found.size() > getSize() / 16) {
+            return scanDated(from, to);
+        }
+        found.sort(Comparator.comparingInt(Task::getEpochDay)
+                .thenComparingInt(allTasks::indexOf));
+        return new TaskList(new ArrayList<>(found));
+    }
+
+    /**
+     * Finds dated tasks by reading the whole list,
+     * which beats looking up the position of each
+     * task when a large part of the list matches.
+     */
+    private TaskList scanDated(LocalDate from, LocalDate to) {
+        int first = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        ArrayList<Task> found = new ArrayList<>();
+        for (int i = 0; i < getSize(); i++) {
+            Task t = getTask(i);
+            int epochDay = t.getEpochDay();
+            if (epochDay != Task.NO_DATE && epochDay >= first
+                    && epochDay <= to.toEpochDay()) {
+                found.add(t);
+            }
+        }
+        found.sort(Comparator.comparingInt(Task::getEpochDay));
+        return new TaskList(found);
+    }
+
+    /**
+     * Counts the deadlines and events whose
+     * date is free text, and so cannot be
+     * found by date.
+     *
+     * @return the number of undated tasks.
+     */
+    public int countUndated() {
+        indexDates();
+        if (dateIndex == null) {
+            int count = 0;
+            for (int i = 0; i < getSize(); i++) {
+                Task t = getTask(i);
+                if ((t instanceof Deadline || t instanceof Event)
+                        && t.getEpochDay() == Task.NO_DATE) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return dateIndex.getUndatedCount();
     }
 
     /**
@@ -30,7 +252,22 @@ public class TaskList {
      * @param t the task to be added.
      */
     public void addTask(Task t) {
-        allTasks.add(t);
+        insertTask(allTasks.size(), t);
+    }
+
+    /**
+     * Inserts a task at the given position,
+     * shifting later tasks back by one.
+     *
+     * @param index the position to insert at.
+     * @param t     the task to be added.
+     */
+    public void insertTask(int index, Task t) {
+        allTasks.insertAt(index, t);
+        version++;
+        for (TaskListener listener : listeners) {
+            listener.taskAdded(index, t);
+        }
     }
 
     /**
@@ -39,7 +276,67 @@ public class TaskList {
      * @param t the task to be removed.
      */
     public void removeTask(Task t) {
-        allTasks.remove(t);
+        int index = allTasks.indexOf(t);
+        if (index < 0) {
+            return;
+        }
+        removeTaskAt(index);
+    }
+
+    /**
+     * Removes the task at a position, shifting
+     * later tasks forward by one.
+     *
+     * @param index the index where the task is located.
+     * @return the removed task.
+     */
+    public Task removeTaskAt(int index) {
+        Task t = allTasks.removeAt(index);
+        version++;
+        for (TaskListener listener : listeners) {
+            listener.taskRemoved(index, t);
+        }
+        return t;
+    }
+
+    /**
+     * Removes the tasks at several positions
+     * in one pass. Listeners are told about
+     * each removal from the last position to
+     * the first, so every position they are
+     * given is right at that point.
+     *
+     * @param indices the positions, in increasing order
+     *                and without repeats.
+     */
+    public void removeTasksAt(int[] indices) {
+        Task[] removed = allTasks.removeAll(indices);
+        version++;
+        for (int i = indices.length - 1; i >= 0; i--) {
+            for (TaskListener listener : listeners) {
+                listener.taskRemoved(indices[i], removed[i]);
+            }
+        }
+    }
+
+    /**
+     * Marks the task at index as done
+     * or not done. Listeners are only told
+     * if the task's status really changes.
+     *
+     * @param index  the index where the task is located.
+     * @param isDone whether the task is done.
+     */
+    public void setDone(int index, boolean isDone) {
+        if (getTask(index).getIsDone().equals("[X]") == isDone) {
+            return;
+        }
+        allTasks.setDone(index, isDone);
+        version++;
+        Task t = getTask(index);
+        for (TaskListener listener : listeners) {
+            listener.taskChanged(index, t);
+        }
     }
 
     /**
@@ -68,7 +365,9 @@ public class TaskList {
      * @param otherTasks the other TaskList.
      */
     public void addTasks(TaskList otherTasks) {
-        allTasks.addAll(otherTasks.getTasks());
+        for (int i = 0; i < otherTasks.getSize(); i++) {
+            addTask(otherTasks.getTask(i));
+        }
     }
 
     /**
@@ -78,7 +377,25 @@ public class TaskList {
      * @param otherTasks the other TaskList.
      */
     public void removeTasks(TaskList otherTasks) {
-        allTasks.removeAll(otherTasks.getTasks());
+        int[] indices = new int[otherTasks.getSize()];
+        int count = 0;
+        for (int i = 0; i < otherTasks.getSize(); i++) {
+            int index = allTasks.indexOf(otherTasks.getTask(i));
+            if (index >= 0) {
+                indices[count++] = index;
+            }
+        }
+        removeTasksAt(Arrays.stream(indices, 0, count).sorted().distinct().toArray());
+    }
+
+    /**
+     * Copies the list, so it can be read
+     * while the original keeps changing.
+     *
+     * @return a TaskList holding the same tasks.
+     */
+    public TaskList copy() {
+        return subList(0, getSize());
     }
 
     /**
@@ -89,9 +406,7 @@ public class TaskList {
      * @param end   the end index (exclusive).
      */
     public TaskList subList(int start, int end) {
-        List<Task> tempTasks = allTasks.subList(start, end);
-        ArrayList<Task> newTasks = new ArrayList<>(tempTasks);
-        return new TaskList(newTasks);
+        return new TaskList(allTasks.copy(start, end));
     }
 
 }
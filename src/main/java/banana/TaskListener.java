@@ -0,0 +1,33 @@
+package banana;
+
+/**
+ * The TaskListener interface is notified
+ * of every change made to a TaskList.
+ */
+interface TaskListener {
+
+    /**
+     * Called after a task has been inserted.
+     *
+     * @param index the position of the new task.
+     * @param t     the task that was added.
+     */
+    void taskAdded(int index, Task t);
+
+    /**
+     * Called after a task has been removed.
+     *
+     * @param index the position the task used to occupy.
+     * @param t     the task that was removed.
+     */
+    void taskRemoved(int index, Task t);
+
+    /**
+     * Called after a task's done status has changed.
+     *
+     * @param index the position of the task.
+     * @param t     the task that was changed.
+     */
+    void taskChanged(int index, Task t);
+
+}
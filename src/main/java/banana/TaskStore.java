@@ -0,0 +1,89 @@
+package banana;
+
+/**
+ * The TaskStore interface is implemented by
+ * the ways a TaskList can hold its tasks.
+ * Positions start from 0.
+ */
+interface TaskStore {
+
+    /**
+     * Gets the number of tasks.
+     *
+     * @return the number of tasks.
+     */
+    int size();
+
+    /**
+     * Gets the task at a position.
+     *
+     * @param index the position.
+     * @return the task.
+     */
+    Task get(int index);
+
+    /**
+     * Finds the position of a task.
+     *
+     * @param t the task.
+     * @return its position, or -1 if it is not stored.
+     */
+    int indexOf(Task t);
+
+    /**
+     * Inserts a task, shifting later
+     * positions up by one.
+     *
+     * @param index the position to insert at.
+     * @param t     the task.
+     */
+    void insertAt(int index, Task t);
+
+    /**
+     * Removes the task at a position, shifting
+     * later positions down by one.
+     *
+     * @param index the position.
+     * @return the removed task.
+     */
+    Task removeAt(int index);
+
+    /**
+     * Removes the tasks at several positions
+     * at once, closing up the gaps in one pass.
+     *
+     * @param indices the positions, in increasing order
+     *                and without repeats.
+     * @return the removed tasks, in the same order.
+     */
+    Task[] removeAll(int[] indices);
+
+    /**
+     * Marks the task at a position as
+     * done or not done.
+     *
+     * @param index  the position.
+     * @param isDone whether the task is done.
+     */
+    void setDone(int index, boolean isDone);
+
+    /**
+     * Copies the tasks from start to end - 1
+     * into a new store of the same kind.
+     *
+     * @param start the starting position (inclusive).
+     * @param end   the end position (exclusive).
+     * @return the copy.
+     */
+    TaskStore copy(int start, int end);
+
+    /**
+     * Checks if tasks read from this store are
+     * the stored objects themselves, so they can
+     * be told apart by identity.
+     *
+     * @return whether tasks keep their identity.
+     */
+    boolean isIdentityKept();
+
+}
@@ -0,0 +1,382 @@
+package banana;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TaskTransfer class streams tasks between
+ * the list and CSV or newline-delimited JSON
+ * files, one record per line, so files of any
+ * size can be moved with a small, fixed buffer.
+ *
+ * Both formats carry the fields type (T, D, E
+ * or P for a plain task), done, description,
+ * date (yyyy-MM-dd, may be empty) and time.
+ * Rows without a date whose time is written like
+ * "2/12/2019 1800" or "1800" are read the same
+ * way the deadline and event commands read them.
+ */
+class TaskTransfer {
+
+    private static final int BATCH_SIZE = 4096;
+    private static final String[] FIELDS = {"type", "done", "description", "date", "time"};
+
+    /**
+     * Adds every task in a file to the list.
+     * Rows that cannot be read are skipped.
+     *
+     * @param f     a .csv or .json/.jsonl/.ndjson file.
+     * @param tasks the list of tasks.
+     * @return the number of tasks added and rows skipped.
+     * @throws IOException   if the file cannot be read.
+     * @throws DukeException if the file type is not known.
+     */
+    static int[] importFrom(File f, TaskList tasks) throws IOException, DukeException {
+        boolean isCsv = isCsv(f);
+        int added = 0;
+        int skipped = 0;
+        ArrayList<Task> batch = new ArrayList<>(BATCH_SIZE);
+        try (BufferedReader br = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            boolean isFirst = true;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<String, String> record;
+                try {
+                    record = isCsv ? readCsv(line) : readJson(line);
+                } catch (RuntimeException e) {
+                    record = null;
+                }
+                if (isFirst && isCsv && record != null && "type".equals(record.get("type"))) {
+                    isFirst = false;
+                    continue;
+                }
+                isFirst = false;
+                Task t = record == null ? null : toTask(record);
+                if (t == null) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(t);
+                if (batch.size() == BATCH_SIZE) {
+                    added += flush(batch, tasks);
+                }
+            }
+        }
+        added += flush(batch, tasks);
+        return new int[] {added, skipped};
+    }
+
+    private static int flush(ArrayList<Task> batch, TaskList tasks) {
+        int count = batch.size();
+        tasks.addTasks(new TaskList(batch));
+        batch.clear();
+        return count;
+    }
+
+    /**
+     * Writes every task in the list to a file.
+     *
+     * @param f     a .csv or .json/.jsonl/.ndjson file.
+     * @param tasks the list of tasks.
+     * @return the number of tasks written.
+     * @throws IOException   if the file cannot be written.
+     * @throws DukeException if the file type is not known.
+     */
+    static int exportTo(File f, TaskList tasks) throws IOException, DukeException {
+        boolean isCsv = isCsv(f);
+        StringBuilder line = new StringBuilder();
+        try (BufferedWriter bw = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+            if (isCsv) {
+                bw.write(String.join(",", FIELDS));
+                bw.newLine();
+            }
+            for (int i = 0; i < tasks.getSize(); i++) {
+                line.setLength(0);
+                String[] values = toValues(tasks.getTask(i));
+                if (isCsv) {
+                    writeCsv(values, line);
+                } else {
+                    writeJson(values, line);
+                }
+                bw.append(line).append('\n');
+            }
+        }
+        return tasks.getSize();
+    }
+
+    private static boolean isCsv(File f) throws DukeException {
+        String name = f.getName().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return true;
+        } else if (name.endsWith(".json") || name.endsWith(".jsonl")
+                || name.endsWith(".ndjson")) {
+            return false;
+        }
+        throw new DukeException(" OOPS!!! I can only read and write"
+                + "\n .csv and .json files.");
+    }
+
+    private static String[] toValues(Task t) {
+        LocalDate date = t.getDate();
+        return new String[] {
+            String.valueOf(Storage.typeOf(t)),
+            t.getIsDone().equals("[X]") ? "Yes" : "No",
+            t.getDescription(),
+            date == null ? "" : date.toString(),
+            t.getTime()
+        };
+    }
+
+    /**
+     * Replaces line breaks, tabs and other control
+     * characters with spaces, since every way of
+     * saving tasks keeps one task to a line.
+     */
+    private static String withoutControls(String text) {
+        if (text == null || text.chars().noneMatch(Character::isISOControl)) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            sb.append(Character.isISOControl(c) ? ' ' : c);
+        }
+        return sb.toString();
+    }
+
+    private static Task toTask(Map<String, String> record) {
+        String type = record.getOrDefault("type", "");
+        String description = withoutControls(record.get("description"));
+        String date = record.getOrDefault("date", "");
+        String time = withoutControls(record.getOrDefault("time", ""));
+        String done = record.getOrDefault("done", "");
+        boolean isDone = done.equalsIgnoreCase("yes") || done.equalsIgnoreCase("true");
+        if (description == null || description.isEmpty() || type.length() != 1) {
+            return null;
+        }
+        try {
+            char kind = type.charAt(0);
+            Task t;
+            if (!date.isEmpty()) {
+                LocalDate day = DateTimeParser.parseIsoDate(date);
+                if (day == null) {
+                    return null;
+                }
+                t = Storage.build(kind, isDone, description, day, time);
+            } else if ((kind == 'D' || kind == 'E') && isCommandStyle(time)) {
+                t = ParserFunctions.getDateAndTime(description, time,
+                        kind == 'D' ? "deadline" : "event");
+                t.setIsDone(isDone);
+            } else {
+                t = Storage.build(kind, isDone, description, null, time);
+            }
+            return t;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if a time is written the way the deadline
+     * and event commands take it, e.g. "2/12/2019 1800"
+     * or "1800", rather than as already formatted text.
+     *
+     * @param time the time field.
+     * @return whether to parse it like a command.
+     */
+    private static boolean isCommandStyle(String time) {
+        String first = time.split(" ")[0];
+        return first.contains("/") || !first.isEmpty() && first.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Splits a CSV line, honouring double-quoted
+     * fields with "" as an escaped quote.
+     *
+     * @param line the line.
+     * @return the fields by name, or null if malformed.
+     */
+    static Map<String, String> readCsv(String line) {
+        List<String> values = new ArrayList<>(FIELDS.length);
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (isQuoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    isQuoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        values.add(field.toString());
+        if (isQuoted || values.size() < 3) {
+            return null;
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < values.size() && i < FIELDS.length; i++) {
+            record.put(FIELDS[i], values.get(i));
+        }
+        return record;
+    }
+
+    private static void writeCsv(String[] values, StringBuilder sb) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String v = values[i];
+            if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0
+                    || v.indexOf('\r') >= 0) {
+                sb.append('"').append(v.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(v);
+            }
+        }
+    }
+
+    /**
+     * Reads a flat JSON object of string,
+     * boolean or null values.
+     *
+     * @param line the line.
+     * @return the fields by name, or null if malformed.
+     */
+    static Map<String, String> readJson(String line) {
+        Map<String, String> record = new HashMap<>();
+        int[] pos = {skipSpaces(line, 0)};
+        if (pos[0] >= line.length() || line.charAt(pos[0]) != '{') {
+            return null;
+        }
+        pos[0]++;
+        while (true) {
+            pos[0] = skipSpaces(line, pos[0]);
+            if (pos[0] < line.length() && line.charAt(pos[0]) == '}') {
+                return record;
+            }
+            String key = readJsonString(line, pos);
+            pos[0] = skipSpaces(line, pos[0]);
+            if (key == null || pos[0] >= line.length() || line.charAt(pos[0]) != ':') {
+                return null;
+            }
+            pos[0] = skipSpaces(line, pos[0] + 1);
+            String value;
+            if (pos[0] < line.length() && line.charAt(pos[0]) == '"') {
+                value = readJsonString(line, pos);
+            } else {
+                int end = pos[0];
+                while (end < line.length() && ",} \t".indexOf(line.charAt(end)) < 0) {
+                    end++;
+                }
+                value = line.substring(pos[0], end);
+                value = value.equals("null") ? "" : value;
+                pos[0] = end;
+            }
+            if (value == null) {
+                return null;
+            }
+            record.put(key, value);
+            pos[0] = skipSpaces(line, pos[0]);
+            if (pos[0] < line.length() && line.charAt(pos[0]) == ',') {
+                pos[0]++;
+            } else if (pos[0] >= line.length() || line.charAt(pos[0]) != '}') {
+                return null;
+            }
+        }
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String readJsonString(String s, int[] pos) {
+        if (pos[0] >= s.length() || s.charAt(pos[0]) != '"') {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = pos[0] + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                pos[0] = i + 1;
+                return sb.toString();
+            } else if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                if (e == 'n') {
+                    sb.append('\n');
+                } else if (e == 't') {
+                    sb.append('\t');
+                } else if (e == 'r') {
+                    sb.append('\r');
+                } else if (e == 'u' && i + 4 < s.length()) {
+                    sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    i += 4;
+                } else {
+                    sb.append(e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return null;
+    }
+
+    private static void writeJson(String[] values, StringBuilder sb) {
+        sb.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(FIELDS[i]).append("\":");
+            if (i == 1) {
+                sb.append(values[i].equals("Yes"));
+                continue;
+            }
+            sb.append('"');
+            String v = values[i];
+            for (int j = 0; j < v.length(); j++) {
+                char c = v.charAt(j);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        sb.append('}');
+    }
+
+}
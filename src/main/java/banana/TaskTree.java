@@ -0,0 +1,400 @@
+package banana;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The TaskTree class holds tasks in order in a
+ * treap, a binary tree kept balanced by random
+ * priorities. Each node knows the size of its
+ * subtree, so a task is found, inserted or
+ * removed by position in O(log n) time without
+ * moving any other task.
+ *
+ * Each node also links to its parent, so the
+ * position of a given task can be worked out by
+ * walking up from its node, and reading tasks
+ * one after another takes O(1) steps each.
+ *
+ * Until something is inserted or removed away
+ * from the end, or a task's position is looked
+ * up, the tasks stay in a plain array instead.
+ * Lists that are only loaded, appended to and
+ * read, such as copies made for saving, never
+ * pay for building the tree.
+ *
+ * Reading never changes the tree itself, so
+ * several threads can read at once as long as
+ * nothing is being changed at the same time.
+ */
+class TaskTree implements TaskStore {
+
+    private volatile ArrayList<Task> flat;
+    private Node root;
+    private Map<Task, Node> nodes;
+    private Finger last;
+
+    /**
+     * Constructor for TaskTree.
+     *
+     * @param tasks the tasks, in order, which the tree takes over.
+     */
+    TaskTree(ArrayList<Task> tasks) {
+        this.flat = tasks;
+    }
+
+    /**
+     * Moves the tasks from the plain array into
+     * a balanced tree, in O(n) time.
+     */
+    private synchronized void toTree() {
+        ArrayList<Task> tasks = flat;
+        if (tasks == null) {
+            return;
+        }
+        nodes = new IdentityHashMap<>(tasks.size());
+        root = build(tasks, 0, tasks.size());
+        if (root != null) {
+            root.parent = null;
+        }
+        flat = null;
+    }
+
+    private Node build(List<Task> tasks, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        int middle = (start + end) >>> 1;
+        Node node = newNode(tasks.get(middle));
+        node.left = build(tasks, start, middle);
+        node.right = build(tasks, middle + 1, end);
+        update(node);
+        siftDown(node);
+        return node;
+    }
+
+    /**
+     * Swaps priorities down the tree until the node's
+     * subtree is heap-ordered again. The shape stays
+     * the same, so the tree stays balanced.
+     */
+    private static void siftDown(Node node) {
+        while (true) {
+            Node larger = node;
+            if (node.left != null && node.left.priority > larger.priority) {
+                larger = node.left;
+            }
+            if (node.right != null && node.right.priority > larger.priority) {
+                larger = node.right;
+            }
+            if (larger == node) {
+                return;
+            }
+            int priority = node.priority;
+            node.priority = larger.priority;
+            larger.priority = priority;
+            node = larger;
+        }
+    }
+
+    private Node newNode(Task t) {
+        Node node = new Node(t, ThreadLocalRandom.current().nextInt());
+        nodes.putIfAbsent(t, node);
+        return node;
+    }
+
+    /**
+     * Gets the number of tasks.
+     *
+     * @return the number of tasks.
+     */
+    @Override
+    public int size() {
+        ArrayList<Task> tasks = flat;
+        return tasks != null ? tasks.size() : size(root);
+    }
+
+    /**
+     * Gets the task at a position.
+     *
+     * @param index the position, from 0.
+     * @return the task.
+     */
+    @Override
+    public Task get(int index) {
+        ArrayList<Task> tasks = flat;
+        return tasks != null ? tasks.get(index) : nodeAt(index).task;
+    }
+
+    @Override
+    public void setDone(int index, boolean isDone) {
+        get(index).setIsDone(isDone);
+    }
+
+    @Override
+    public TaskStore copy(int start, int end) {
+        ArrayList<Task> tasks = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            tasks.add(get(i));
+        }
+        return new TaskTree(tasks);
+    }
+
+    @Override
+    public boolean isIdentityKept() {
+        return true;
+    }
+
+    private Node nodeAt(int index) {
+        checkIndex(index, size());
+        Finger finger = last;
+        Node node;
+        if (finger != null && index == finger.index + 1) {
+            node = successor(finger.node);
+        } else if (finger != null && index == finger.index) {
+            node = finger.node;
+        } else {
+            node = root;
+            int i = index;
+            while (size(node.left) != i) {
+                if (i < size(node.left)) {
+                    node = node.left;
+                } else {
+                    i -= size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+        }
+        last = new Finger(node, index);
+        return node;
+    }
+
+    /**
+     * Finds the position of a task.
+     *
+     * @param t the task.
+     * @return its position, or -1 if it is not in the tree.
+     */
+    @Override
+    public int indexOf(Task t) {
+        toTree();
+        Node node = nodes.get(t);
+        if (node == null) {
+            return -1;
+        }
+        int index = size(node.left);
+        for (Node n = node; n.parent != null; n = n.parent) {
+            if (n.parent.right == n) {
+                index += size(n.parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Inserts a task, shifting later
+     * positions up by one.
+     *
+     * @param index the position to insert at.
+     * @param t     the task.
+     */
+    @Override
+    public void insertAt(int index, Task t) {
+        checkIndex(index, size() + 1);
+        ArrayList<Task> tasks = flat;
+        if (tasks != null && index == tasks.size()) {
+            tasks.add(t);
+            return;
+        }
+        toTree();
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], newNode(t)), parts[1]);
+        root.parent = null;
+        last = null;
+    }
+
+    /**
+     * Removes the task at a position, shifting
+     * later positions down by one.
+     *
+     * @param index the position.
+     * @return the removed task.
+     */
+    @Override
+    public Task removeAt(int index) {
+        checkIndex(index, size());
+        ArrayList<Task> tasks = flat;
+        if (tasks != null && index == tasks.size() - 1) {
+            return tasks.remove(index);
+        }
+        toTree();
+        Node[] before = split(root, index);
+        Node[] after = split(before[1], 1);
+        Node removed = after[0];
+        root = merge(before[0], after[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        if (nodes.get(removed.task) == removed) {
+            nodes.remove(removed.task);
+        }
+        last = null;
+        return removed.task;
+    }
+
+    /**
+     * Removes the tasks at several positions. A
+     * few are removed one at a time; for more, the
+     * remaining tasks are gathered in order into a
+     * new plain array, which takes O(n) time but
+     * beats thousands of separate removals.
+     *
+     * @param indices the positions, in increasing order.
+     * @return the removed tasks, in the same order.
+     */
+    @Override
+    public Task[] removeAll(int[] indices) {
+        Task[] removed = new Task[indices.length];
+        int size = size();
+        if (indices.length <= size / 64) {
+            for (int i = indices.length - 1; i >= 0; i--) {
+                removed[i] = removeAt(indices[i]);
+            }
+            return removed;
+        }
+        ArrayList<Task> kept = new ArrayList<>(size - indices.length);
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            Task t = get(i);
+            if (next < indices.length && indices[next] == i) {
+                removed[next++] = t;
+            } else {
+                kept.add(t);
+            }
+        }
+        root = null;
+        nodes = null;
+        last = null;
+        flat = kept;
+        return removed;
+    }
+
+    /**
+     * Splits a subtree into its first count
+     * tasks and the rest.
+     */
+    private static Node[] split(Node node, int count) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (size(node.left) >= count) {
+            parts = split(node.left, count);
+            node.left = parts[1];
+            parts[1] = node;
+        } else {
+            parts = split(node.right, count - size(node.left) - 1);
+            node.right = parts[0];
+            parts[0] = node;
+        }
+        update(node);
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees, all of whose tasks
+     * in first come before those in second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        } else if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            update(second);
+            return second;
+        }
+    }
+
+    private static Node successor(Node node) {
+        if (node.right != null) {
+            Node next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            return next;
+        }
+        Node n = node;
+        while (n.parent != null && n.parent.right == n) {
+            n = n.parent;
+        }
+        return n.parent;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length "
+                    + bound);
+        }
+    }
+
+    /**
+     * One task in the tree.
+     */
+    private static class Node {
+
+        private Task task;
+        private int priority;
+        private int size;
+        private Node left;
+        private Node right;
+        private Node parent;
+
+        Node(Task task, int priority) {
+            this.task = task;
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+
+    /**
+     * The last node read and its position, so
+     * reading the next one is a single step.
+     * Readers on different threads may replace
+     * it at once; each one is whole, and any of
+     * them is right while the tree is unchanged.
+     */
+    private static class Finger {
+
+        private final Node node;
+        private final int index;
+
+        Finger(Node node, int index) {
+            this.node = node;
+            this.index = index;
+        }
+    }
+
+}
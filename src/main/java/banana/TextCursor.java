@@ -0,0 +1,102 @@
+package banana;
+
+/**
+ * The TextCursor class reads a command's
+ * arguments from left to right, a number or
+ * a word at a time, without regular
+ * expressions or splitting into arrays.
+ */
+class TextCursor {
+
+    private final String text;
+    private int position;
+
+    /**
+     * Constructor for TextCursor.
+     *
+     * @param text the text to read.
+     */
+    TextCursor(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Checks if everything but spaces has been read.
+     *
+     * @return whether the text is used up.
+     */
+    boolean isAtEnd() {
+        skipSpaces();
+        return position == text.length();
+    }
+
+    /**
+     * Reads a character, if it comes next
+     * after any spaces.
+     *
+     * @param c the character.
+     * @return whether it was there.
+     */
+    boolean skip(char c) {
+        skipSpaces();
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a word, if it comes next after any spaces.
+     *
+     * @param word the word.
+     * @return whether it was there.
+     */
+    boolean skip(String word) {
+        skipSpaces();
+        if (text.startsWith(word, position)) {
+            position += word.length();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a whole number after any spaces.
+     *
+     * @return the number, Integer.MAX_VALUE if it is
+     *         larger than that, or -1 if there is none.
+     */
+    int readNumber() {
+        skipSpaces();
+        long number = -1;
+        while (position < text.length() && text.charAt(position) >= '0'
+                && text.charAt(position) <= '9') {
+            number = Math.min(Math.max(number, 0) * 10 + text.charAt(position) - '0',
+                    Integer.MAX_VALUE);
+            position++;
+        }
+        return (int) number;
+    }
+
+    /**
+     * Reads everything up to the next space.
+     *
+     * @return the word, or an empty string at the end.
+     */
+    String readWord() {
+        skipSpaces();
+        int start = position;
+        while (position < text.length() && !Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return text.substring(start, position);
+    }
+
+    private void skipSpaces() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package banana;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.List;
+
+/**
+ * The TextTaskFile class keeps the tasks
+ * in a plain text file, one task per line,
+ * and rewrites it whenever the list changes.
+ */
+class TextTaskFile implements TaskFile {
+
+    private File file;
+    private boolean isDirty;
+
+    /**
+     * Constructor for TextTaskFile.
+     *
+     * @param file the text file.
+     */
+    public TextTaskFile(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public TaskList load(LoadReport report) throws IOException {
+        TaskList tasks = Storage.readText(file, report);
+        isDirty = !report.isClean();
+        return tasks;
+    }
+
+    @Override
+    public Write capture(TaskList tasks) {
+        if (!isDirty) {
+            return null;
+        }
+        isDirty = false;
+        return new Snapshot(tasks.copy());
+    }
+
+    @Override
+    public void write(List<Write> writes, boolean isForced) throws IOException {
+        Snapshot last = (Snapshot) writes.get(writes.size() - 1);
+        Storage.writeText(file.toPath(), last.getTasks(), isForced);
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        isDirty = true;
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        isDirty = true;
+    }
+
+}
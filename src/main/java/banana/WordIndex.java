@@ -0,0 +1,164 @@
+package banana;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The WordIndex class maps every word in the
+ * task descriptions to the tasks using it, and
+ * is kept up to date as tasks come and go. It
+ * lets find look up only the tasks sharing the
+ * searched words instead of reading every
+ * description.
+ *
+ * Words are compared in lower case and split on
+ * anything that is not a letter or digit. Each
+ * searched word matches any word it starts, and
+ * a task must match every searched word.
+ */
+class WordIndex implements TaskListener {
+
+    private TreeMap<String, Set<Task>> postings;
+
+    /**
+     * Constructor for WordIndex. Indexes
+     * the tasks already in the list.
+     *
+     * @param tasks the list of tasks.
+     */
+    WordIndex(TaskList tasks) {
+        this.postings = new TreeMap<>();
+        for (int i = 0; i < tasks.getSize(); i++) {
+            taskAdded(i, tasks.getTask(i));
+        }
+    }
+
+    /**
+     * Splits text into lower-case words.
+     *
+     * @param text the text.
+     * @return the words, in order.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Checks if every searched word starts
+     * a word of a description.
+     *
+     * @param query       the searched words, in lower case.
+     * @param description the description.
+     * @return whether the description matches.
+     */
+    static boolean matches(List<String> query, String description) {
+        List<String> words = words(description);
+        outer:
+        for (String prefix : query) {
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    continue outer;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the tasks matching every word in
+     * the query, each word as a prefix.
+     *
+     * @param query the searched words.
+     * @return the matching tasks, in no particular order.
+     */
+    Set<Task> find(String query) {
+        List<Set<Task>> matches = new ArrayList<>();
+        for (String word : words(query)) {
+            Set<Task> match = match(word);
+            if (match.isEmpty()) {
+                return match;
+            }
+            matches.add(match);
+        }
+        if (matches.isEmpty()) {
+            return Collections.emptySet();
+        }
+        matches.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        Set<Task> result = identitySet(matches.get(0).size());
+        outer:
+        for (Task t : matches.get(0)) {
+            for (int i = 1; i < matches.size(); i++) {
+                if (!matches.get(i).contains(t)) {
+                    continue outer;
+                }
+            }
+            result.add(t);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the tasks with a word starting
+     * with prefix.
+     */
+    private Set<Task> match(String prefix) {
+        Map<String, Set<Task>> range = postings.subMap(prefix, true,
+                prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) {
+            return range.values().iterator().next();
+        }
+        Set<Task> match = identitySet(range.size());
+        for (Set<Task> tasks : range.values()) {
+            match.addAll(tasks);
+        }
+        return match;
+    }
+
+    private static Set<Task> identitySet(int expectedSize) {
+        return Collections.newSetFromMap(new IdentityHashMap<>(expectedSize));
+    }
+
+    @Override
+    public void taskAdded(int index, Task t) {
+        for (String word : words(t.getDescription())) {
+            postings.computeIfAbsent(word, w -> identitySet(1)).add(t);
+        }
+    }
+
+    @Override
+    public void taskRemoved(int index, Task t) {
+        for (String word : words(t.getDescription())) {
+            Set<Task> tasks = postings.get(word);
+            if (tasks != null) {
+                tasks.remove(t);
+                if (tasks.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void taskChanged(int index, Task t) {
+        // Descriptions never change, so the words stay the same.
+    }
+
+}